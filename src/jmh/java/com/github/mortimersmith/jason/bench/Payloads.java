@@ -0,0 +1,84 @@
+package com.github.mortimersmith.jason.bench;
+
+import com.github.mortimersmith.jason.Examples;
+import com.github.mortimersmith.jason.JasonLib;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class Payloads
+{
+    public static class Payload<T extends JasonLib.Serializable>
+    {
+        public final T value;
+        public final JasonLib.From<T> from;
+
+        private Payload(T value, JasonLib.From<T> from) {
+            this.value = value;
+            this.from = from;
+        }
+    }
+
+    public static Payload<?> of(String name)
+    {
+        switch (name) {
+            case "example": return new Payload<>(example(), Examples.This::from);
+            case "deep": return new Payload<>(deep(64), Stress.Node::from);
+            case "wide": return new Payload<>(wide(), Stress.Wide::from);
+            case "big": return new Payload<>(big(10000), Stress.Series::from);
+            default: throw new IllegalArgumentException("unknown payload: " + name);
+        }
+    }
+
+    public static Examples.This example()
+    {
+        Map<String, Examples.That> four = new HashMap<>();
+        for (int i = 0; i < 4; ++i) four.put("key" + i, Examples.That.of(i));
+        List<Integer> three = new ArrayList<>();
+        for (int i = 0; i < 8; ++i) three.add(i);
+        return Examples.This.of(true, Examples.That.of(42), three, four, Optional.of(1234567890123L), new double[] { 0.5, -1.25, 1e100 });
+    }
+
+    public static Stress.Node deep(int depth)
+    {
+        Stress.Node node = Stress.Node.of(depth, "leaf", Collections.emptyList());
+        for (int i = depth - 1; i >= 0; --i)
+            node = Stress.Node.of(i, "node" + i, Collections.singletonList(node));
+        return node;
+    }
+
+    public static Stress.Wide wide()
+    {
+        return new Stress.Wide.Builder()
+            .b0(true).b1(false).b2(true).b3(false)
+            .i0(0).i1(-1).i2(127).i3(128).i4(65535).i5(-65536).i6(Integer.MAX_VALUE).i7(Integer.MIN_VALUE)
+            .l0(0L).l1(-1L).l2(1L << 20).l3(1L << 33).l4(-(1L << 40)).l5(1234567890123L).l6(Long.MAX_VALUE).l7(Long.MIN_VALUE)
+            .f0(0f).f1(1.5f).f2(-3.25f).f3(1e10f)
+            .d0(0d).d1(0.1d).d2(-2.5d).d3(Math.PI).d4(Math.E).d5(1e-300d).d6(1e300d).d7(123456.789d)
+            .s0("").s1("short").s2("a somewhat longer string value").s3("unicode \u00e9\u00e8\u4e2d")
+            .o0(Optional.of(99L)).o1(Optional.empty())
+            .build();
+    }
+
+    public static Stress.Series big(int size)
+    {
+        List<Long> times = new ArrayList<>(size);
+        List<Double> values = new ArrayList<>(size);
+        List<Stress.Point> points = new ArrayList<>(size);
+        Map<String, String> tags = new HashMap<>();
+        Map<String, Stress.Point> byName = new HashMap<>();
+        for (int i = 0; i < size; ++i) {
+            long time = 1500000000000L + i * 1000L;
+            double value = Math.sin(i) * 1000;
+            times.add(time);
+            values.add(value);
+            points.add(Stress.Point.of(time, value));
+            if (i % 10 == 0) byName.put("p" + i, Stress.Point.of(time, value));
+            if (i % 100 == 0) tags.put("tag" + i, "value" + i);
+        }
+        return Stress.Series.of("series", times, values, points, tags, byName);
+    }
+}
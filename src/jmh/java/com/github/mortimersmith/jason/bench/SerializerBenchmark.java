@@ -0,0 +1,129 @@
+package com.github.mortimersmith.jason.bench;
+
+import com.github.mortimersmith.jason.JasonLib;
+import com.github.mortimersmith.jason.binary.Buffers;
+import com.github.mortimersmith.jason.json.Json;
+import com.github.mortimersmith.jason.json.JsonStream;
+import com.github.mortimersmith.jason.msgpack.MessagePack;
+import com.google.gson.JsonObject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Round trips of generated types through each serializer. Run with {@code gradle jmh}, which
+ * adds the gc profiler so allocation per operation is reported next to throughput and the
+ * sample-time percentiles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark
+{
+    @Param({ "example", "deep", "wide", "big" })
+    public String payload;
+
+    private Payloads.Payload<?> _payload;
+    private JsonObject _json;
+    private String _jsonText;
+    private byte[] _msgpack;
+    private ByteBuffer _buffer;
+    private Buffers.Output _output;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        _payload = Payloads.of(payload);
+        _json = Json.wrap(_payload.value);
+        StringWriter out = new StringWriter();
+        JsonStream.wrap(_payload.value, out);
+        _jsonText = out.toString();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MessagePack.wrap(_payload.value, bytes);
+        _msgpack = bytes.toByteArray();
+        _buffer = Buffers.wrap(_payload.value);
+        _output = Buffers.Output.heap(_buffer.remaining());
+    }
+
+    @Benchmark
+    public JsonObject jsonWrap() throws IOException
+    {
+        return Json.wrap(_payload.value);
+    }
+
+    @Benchmark
+    public JasonLib.Serializable jsonUnwrap() throws IOException
+    {
+        return Json.unwrap(_json, _payload.from);
+    }
+
+    @Benchmark
+    public String jsonStreamWrap() throws IOException
+    {
+        StringWriter out = new StringWriter(_jsonText.length());
+        JsonStream.wrap(_payload.value, out);
+        return out.toString();
+    }
+
+    @Benchmark
+    public JasonLib.Serializable jsonStreamUnwrap() throws IOException
+    {
+        return JsonStream.unwrap(new StringReader(_jsonText), _payload.from);
+    }
+
+    @Benchmark
+    public byte[] messagePackWrap() throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(_msgpack.length);
+        MessagePack.wrap(_payload.value, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public JasonLib.Serializable messagePackUnwrap() throws IOException
+    {
+        return MessagePack.unwrap(new ByteArrayInputStream(_msgpack), _payload.from);
+    }
+
+    @Benchmark
+    public int messagePackSessionWrap() throws IOException
+    {
+        return MessagePack.session().reset().append(_payload.value).size();
+    }
+
+    @Benchmark
+    public JasonLib.Serializable messagePackSessionUnwrap() throws IOException
+    {
+        return MessagePack.session().unwrap(_msgpack, _payload.from);
+    }
+
+    @Benchmark
+    public Buffers.Output buffersWrap() throws IOException
+    {
+        return Buffers.wrap(_payload.value, _output.clear());
+    }
+
+    @Benchmark
+    public JasonLib.Serializable buffersUnwrap() throws IOException
+    {
+        return Buffers.unwrap(_buffer.duplicate(), _payload.from);
+    }
+}
@@ -6,6 +6,13 @@ import org.gradle.api.tasks.OutputDirectory
 import org.gradle.api.tasks.TaskAction
 import org.gradle.api.tasks.incremental.IncrementalTaskInputs
 
+/**
+ * Compiles jason specs, regenerating only the specs whose content changed since the last run.
+ *
+ * The bookkeeping is done by {@link SpecCache}, with its cache in the task's temporary directory.
+ * When Gradle cannot run the task incrementally everything is regenerated from a clean output
+ * directory.
+ */
 class CompileJason extends DefaultTask
 {
     @InputDirectory
@@ -16,6 +23,6 @@ class CompileJason extends DefaultTask
 
     @TaskAction
     void execute(IncrementalTaskInputs inputs) {
-        com.github.mortimersmith.jason.Compiler.compile(input.toPath(), outputDir.toPath())
+        SpecCache.compile(input.toPath(), outputDir.toPath(), new File(temporaryDir, "specs.json").toPath(), !inputs.incremental)
     }
 }
@@ -4,6 +4,8 @@ import com.github.mortimersmith.utils.Utils.ThrowingConsumer;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
@@ -18,11 +20,22 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 import javax.lang.model.element.Modifier;
 
 public class Compiler
@@ -33,27 +46,137 @@ public class Compiler
         compile(Paths.get(args[0]), Paths.get(args[1]));
     }
 
+    /**
+     * Compiles every {@code .json} spec in {@code specs} into {@code target}. Specs are parsed,
+     * modelled and emitted in parallel on the common fork-join pool; a failure in one spec does
+     * not stop the others, and all failures are reported together, each under its file name.
+     */
     public static void compile(Path specs, Path target) throws Error
     {
-        JsonParser parser = new JsonParser();
-        for (File file : specs.toFile().listFiles()) {
+        compile(specs(specs), target);
+    }
+
+    /**
+     * The {@code .json} files directly in {@code specs}, sorted; subdirectories are not searched.
+     */
+    static List<Path> specs(Path specs) throws Error
+    {
+        File[] listing = specs.toFile().listFiles();
+        if (listing == null) throw Error.because("not a directory: " + specs);
+        List<Path> files = new ArrayList<>();
+        for (File file : listing) {
             if (!file.isFile()) continue;
             if (!file.getName().endsWith(".json")) continue;
-            JsonObject json = Error.get(() -> parser.parse(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)).getAsJsonObject());
-            compileJson(json, target);
+            files.add(file.toPath());
+        }
+        files.sort(Comparator.comparing(Path::toString));
+        return files;
+    }
+
+    /**
+     * Compiles the given spec files into {@code target}, returning the files generated for each
+     * spec, in the order given. Specs that fail to parse and namespaces defined twice are all
+     * reported before anything is emitted.
+     */
+    public static Map<Path, List<Path>> compile(List<Path> specs, Path target) throws Error
+    {
+        List<Error> failures = new ArrayList<>();
+        List<Package> pkgs = parallel(specs, (spec) -> spec.getFileName().toString(), (spec) -> compilePackage(parse(spec)), failures);
+
+        Map<String, Path> owners = new HashMap<>();
+        Map<Path, List<Path>> outputs = new LinkedHashMap<>();
+        List<Instances> namespaces = new ArrayList<>();
+        for (int i = 0; i < specs.size(); ++i) {
+            if (pkgs.get(i) == null) continue;
+            Path spec = specs.get(i);
+            List<Path> generated = new ArrayList<>();
+            for (Instances is : pkgs.get(i).namespaces.values()) {
+                String name = is.pkg.name + "." + is.name;
+                Path owner = owners.putIfAbsent(name, spec);
+                if (owner != null) {
+                    failures.add(Error.because(spec.getFileName() + ": namespace " + name + " is already defined in " + owner.getFileName()));
+                    continue;
+                }
+                namespaces.add(is);
+                generated.add(Emit.path(is, target));
+            }
+            outputs.put(spec, generated);
+        }
+        fail(failures);
+
+        parallel(namespaces, (is) -> is.pkg.name + "." + is.name, (is) -> Emit.namespace(is, target));
+        return outputs;
+    }
+
+    private static JsonObject parse(Path spec) throws Error
+    {
+        return Error.get(() -> new JsonParser().parse(new String(Files.readAllBytes(spec), StandardCharsets.UTF_8)).getAsJsonObject());
+    }
+
+    private static <T, R> List<R> parallel(List<T> ts, Function<T, String> name, Error.ThrowingFunction<T, R, Exception> f) throws Error
+    {
+        List<Error> failures = new ArrayList<>();
+        List<R> rs = parallel(ts, name, f, failures);
+        fail(failures);
+        return rs;
+    }
+
+    /**
+     * As above, but adds each failure, under its name, to {@code failures} and leaves its result
+     * null.
+     */
+    private static <T, R> List<R> parallel(List<T> ts, Function<T, String> name, Error.ThrowingFunction<T, R, Exception> f, List<Error> failures)
+    {
+        Object[] results = new Object[ts.size()];
+        Exception[] errors = new Exception[ts.size()];
+        IntStream.range(0, ts.size()).parallel().forEach((i) -> {
+            try {
+                results[i] = f.apply(ts.get(i));
+            } catch (Exception e) {
+                errors[i] = e;
+            }
+        });
+        for (int i = 0; i < errors.length; ++i) {
+            if (errors[i] == null) continue;
+            Exception cause = errors[i] instanceof Error && errors[i].getCause() != null
+                ? (Exception)errors[i].getCause()
+                : errors[i];
+            failures.add(new Error(name.apply(ts.get(i)) + ": " + cause, cause));
+        }
+        List<R> rs = new ArrayList<>(results.length);
+        for (Object r : results) {
+            @SuppressWarnings("unchecked") R cast = (R)r;
+            rs.add(cast);
         }
+        return rs;
+    }
+
+    /**
+     * Throws the first of {@code failures}, if any, with the rest suppressed.
+     */
+    private static void fail(List<Error> failures) throws Error
+    {
+        if (failures.isEmpty()) return;
+        Error error = failures.get(0);
+        for (Error failure : failures.subList(1, failures.size())) error.addSuppressed(failure);
+        throw error;
     }
 
     public static void compileJson(JsonObject spec, Path target) throws Error
+    {
+        Emit.pkg(compilePackage(spec), target);
+    }
+
+    private static Package compilePackage(JsonObject spec) throws Error
     {
         Package pkg = new Package();
         pkg.name = spec.get("package").getAsString();
-        for (Instances i : compileNamespaces(spec, pkg))
+        for (Instances i : compileNamespaces(spec, pkg, false))
             pkg.namespaces.put(i.name, i);
-        Emit.pkg(pkg, target);
+        return pkg;
     }
 
-    private static Iterable<Instances> compileNamespaces(JsonObject spec, Package pkg) throws Error
+    private static Iterable<Instances> compileNamespaces(JsonObject spec, Package pkg, boolean views) throws Error
     {
         List<Instances> iss = new LinkedList<>();
         for (JsonElement nsElement : spec.get("namespaces").getAsJsonArray()) {
@@ -61,12 +184,15 @@ public class Compiler
             Instances is = new Instances();
             is.pkg = pkg;
             is.name = nsObject.get("name").getAsString();
+            boolean nsViews = nsObject.has("views") ? nsObject.get("views").getAsBoolean() : views;
             if (nsObject.has("types")) {
                 for (JsonElement typeElement : nsObject.get("types").getAsJsonArray()) {
                     JsonObject typeObject = typeElement.getAsJsonObject();
                     Instance i = new Instance();
                     i.instances = is;
                     i.name = typeObject.get("name").getAsString();
+                    i.view = typeObject.has("view") ? typeObject.get("view").getAsBoolean() : nsViews;
+                    i.reusable = typeObject.has("reusable") && typeObject.get("reusable").getAsBoolean();
                     if (typeObject.has("implements")) {
                         for (JsonElement ifaceElement : typeObject.get("implements").getAsJsonArray())
                             i.ifaces.add(ifaceElement.getAsString());
@@ -76,15 +202,17 @@ public class Compiler
                             JsonObject fieldObject = fieldElement.getAsJsonObject();
                             Member member = new Member();
                             member.name = fieldObject.get("name").getAsString();
+                            member.id = fieldObject.has("id") ? fieldObject.get("id").getAsInt() : i.members.size() + 1;
                             resolveType(fieldObject, member);
                             i.members.add(member);
                         }
                     }
+                    checkIds(i);
                     is.types.put(i.name, i);
                 }
             }
             if (nsObject.has("namespaces")) {
-                for (Instances child : compileNamespaces(nsObject, pkg)) {
+                for (Instances child : compileNamespaces(nsObject, pkg, nsViews)) {
                     child.parent = is;
                     is.namespaces.put(child.name, child);
                 }
@@ -94,6 +222,18 @@ public class Compiler
         return iss;
     }
 
+    private static void checkIds(Instance i) throws Error
+    {
+        Map<Integer, String> ids = new HashMap<>();
+        Set<String> names = new HashSet<>();
+        for (Member m : i.members) {
+            if (!names.add(m.name)) throw Error.because(i.name + "." + m.name + ": field name is already used");
+            if (m.id <= 0) throw Error.because(i.name + "." + m.name + ": field ids must be positive");
+            String prior = ids.putIfAbsent(m.id, m.name);
+            if (prior != null) throw Error.because(i.name + "." + m.name + ": field id " + m.id + " is already used by " + prior);
+        }
+    }
+
     private static void resolveType(JsonObject json, Member m) throws Error
     {
         String type = json.get("type").getAsString();
@@ -101,6 +241,9 @@ public class Compiler
         if ("optional".equals(type) || "list".equals(type)) {
             String of = json.get("of").getAsString();
             m.templates = new Symbol[] { Symbol.of(of) };
+            m.packed = json.has("packed") && json.get("packed").getAsBoolean();
+            if (m.packed && !("list".equals(type) && m.templates[0].packable()))
+                throw Error.because(m.name + ": only lists of int, long, float or double can be packed");
         } else if ("map".equals(type)) {
             String key = json.get("key").getAsString();
             String value = json.get("value").getAsString();
@@ -132,11 +275,29 @@ public class Compiler
     {
         static void pkg(Package pkg, Path target) throws Error
         {
-            for (Instances is : pkg.namespaces.values()) {
-                TypeSpec type = instances(is);
-                JavaFile file = JavaFile.builder(is.pkg.name, type).build();
-                Error.run(() -> file.writeTo(target));
-            }
+            parallel(new ArrayList<>(pkg.namespaces.values()), (is) -> is.name, (is) -> namespace(is, target));
+        }
+
+        static Path path(Instances is, Path target)
+        {
+            return target.resolve(is.pkg.name.replace('.', File.separatorChar)).resolve(is.name + ".java");
+        }
+
+        /**
+         * Writes the namespace's source as UTF-8, leaving the file untouched if it already holds
+         * exactly that source.
+         */
+        static Path namespace(Instances is, Path target) throws Error
+        {
+            TypeSpec type = instances(is);
+            byte[] source = JavaFile.builder(is.pkg.name, type).build().toString().getBytes(StandardCharsets.UTF_8);
+            Path path = path(is, target);
+            Error.run(() -> {
+                if (Files.isRegularFile(path) && Arrays.equals(source, Files.readAllBytes(path))) return;
+                Files.createDirectories(path.getParent());
+                Files.write(path, source);
+            });
+            return path;
         }
 
         static TypeSpec instances(Instances is) throws Error
@@ -160,6 +321,7 @@ public class Compiler
                 .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
                 .addSuperinterface(JasonLib.Serializable.class);
             ifaces(instance, nested);
+            schema(instance, nested);
             fields(instance, true, nested);
             constructor(instance, nested);
             factoryMethod(instance, nested);
@@ -167,8 +329,12 @@ public class Compiler
             setters(instance, nested);
             builder(instance, nested);
             toBuilder(instance, nested);
+            equalsAndHashCode(instance, nested);
             serializableReader(instance, nested);
+            projection(instance, nested);
             serializableWriter(instance, nested);
+            if (instance.view) view(instance, nested);
+            if (instance.reusable) reusable(instance, nested);
             wrapper.addType(nested.build());
         }
 
@@ -178,13 +344,51 @@ public class Compiler
                 type.addSuperinterface(ClassName.get("", iface));
         }
 
+        static void schema(Instance instance, TypeSpec.Builder type) throws Error
+        {
+            ClassName schema = ClassName.get("com.github.mortimersmith.jason", "JasonLib", "Schema");
+            if (instance.members.isEmpty()) {
+                type.addField(
+                    FieldSpec.builder(schema, "SCHEMA", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                        .initializer("$T.builder().build()", schema)
+                        .build());
+                return;
+            }
+            StringBuilder init = new StringBuilder("$1T.builder()");
+            for (Member m : instance.members) {
+                init.append("\n    .field(\"").append(m.name).append("\", ").append(m.id).append(", $2T.");
+                init.append(m.packed ? "ARRAY" : kind(m.type));
+                for (Symbol t : m.templates) init.append(", $2T.").append(kind(t));
+                init.append(")");
+            }
+            init.append("\n    .build()");
+            type.addField(
+                FieldSpec.builder(schema, "SCHEMA", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                    .initializer(init.toString(), schema, schema.nestedClass("Kind"))
+                    .build());
+        }
+
+        static String kind(Symbol s)
+        {
+            if (s.isBoolean()) return "BOOLEAN";
+            if (s.isInteger()) return "INT";
+            if (s.isLong()) return "LONG";
+            if (s.isFloat()) return "FLOAT";
+            if (s.isDouble()) return "DOUBLE";
+            if (s.isString()) return "STRING";
+            if (s.isOptional()) return "OPTIONAL";
+            if (s.isList()) return "LIST";
+            if (s.isMap()) return "MAP";
+            return "OBJECT";
+        }
+
         static void fields(Instance instance, boolean final_, TypeSpec.Builder type) throws Error
         {
             for (Member m : instance.members) {
                 Modifier[] mods = final_
                     ? new Modifier[] { Modifier.PRIVATE, Modifier.FINAL }
                     : new Modifier[] { Modifier.PRIVATE };
-                type.addField(FieldSpec.builder(m.type.type(), "_" + m.name, mods).build());
+                type.addField(FieldSpec.builder(m.type(), "_" + m.name, mods).build());
             }
         }
 
@@ -193,7 +397,7 @@ public class Compiler
             MethodSpec.Builder ctor = MethodSpec.constructorBuilder()
                 .addModifiers(Modifier.PRIVATE);
             for (Member m : instance.members)
-                ctor.addParameter(m.type.type(), m.name);
+                ctor.addParameter(m.type(), m.name);
             for (Member m : instance.members)
                 ctor.addStatement("_$N = $N", m.name, m.name);
             type.addMethod(ctor.build());
@@ -205,7 +409,7 @@ public class Compiler
                 .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
                 .returns(ClassName.get("", instance.name));
             for (Member m : instance.members)
-                method.addParameter(m.type.type(), m.name);
+                method.addParameter(m.type(), m.name);
             StringBuilder stmt = new StringBuilder();
             stmt.append("return new ").append(instance.name).append("(");
             emitEach(instance.members, ", ", stmt, (m) -> stmt.append(m.name));
@@ -220,7 +424,7 @@ public class Compiler
                 type.addMethod(
                     MethodSpec.methodBuilder(m.name)
                         .addModifiers(Modifier.PUBLIC)
-                        .returns(m.type.type())
+                        .returns(m.type())
                         .addStatement("return _$N", m.name)
                         .build());
         }
@@ -239,7 +443,7 @@ public class Compiler
                     MethodSpec.methodBuilder(m.name)
                         .addModifiers(Modifier.PUBLIC)
                         .returns(ClassName.get("", instance.name))
-                        .addParameter(m.type.type(), m.name)
+                        .addParameter(m.type(), m.name)
                         .addStatement(stmt.toString())
                         .build());
             }
@@ -291,7 +495,7 @@ public class Compiler
                     MethodSpec.methodBuilder(m.name)
                         .addModifiers(Modifier.PUBLIC)
                         .returns(ClassName.get("", "Builder"))
-                        .addParameter(m.type.type(), m.name)
+                        .addParameter(m.type(), m.name)
                         .addStatement("_$N = $N", m.name, m.name)
                         .addStatement("return this")
                         .build());
@@ -323,23 +527,12 @@ public class Compiler
 
             StringBuilder stmt = new StringBuilder();
             stmt.append("return (context) -> { ");
-            stmt.append("ObjectRead child = s.childContext(context); ");
+            stmt.append("ObjectRead child = s.childContext(context, SCHEMA); ");
+            stmt.append("if (s.keyed()) return readKeyed(s, child); ");
             stmt.append("return ");
             stmt.append(instance.name);
             stmt.append(".of(");
-            emitEach(instance.members, ", ", stmt, (m) -> {
-                stmt.append("s.read");
-                typeClassification(m, stmt);
-                stmt.append("(child, \"");
-                stmt.append(m.name);
-                stmt.append("\", ");
-                if (!m.type.templatized()) {
-                    serializableReaderPrimitive(m.type, stmt);
-                } else {
-                    emitEach(m.templates, ", ", stmt, (t) -> serializableReaderPrimitive(t, stmt));
-                }
-                stmt.append(")");
-            });
+            emitEach(instance.members, ", ", stmt, (m) -> serializableReaderField(m, "child", stmt));
             stmt.append("); }");
 
             type.addMethod(
@@ -363,8 +556,378 @@ public class Compiler
                             TypeVariableName.get("PrimitiveWrite")),
                         "s")
                     .addException(IOException.class)
+                    .addStatement("return s.serializableReader($N.class, $N::newSerializableReader)", instance.name, instance.name)
+                    .build());
+
+            type.addMethod(
+                MethodSpec.methodBuilder("newSerializableReader")
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                    .addTypeVariable(TypeVariableName.get("ObjectRead"))
+                    .addTypeVariable(TypeVariableName.get("ObjectWrite"))
+                    .addTypeVariable(TypeVariableName.get("PrimitiveRead"))
+                    .addTypeVariable(TypeVariableName.get("PrimitiveWrite"))
+                    .returns(
+                        ParameterizedTypeName.get(
+                            ClassName.get("com.github.mortimersmith.jason.JasonLib.Serializer", "Reader"),
+                            TypeVariableName.get("PrimitiveRead"),
+                            TypeVariableName.get(instance.name)))
+                    .addParameter(
+                        ParameterizedTypeName.get(
+                            ClassName.get("com.github.mortimersmith.jason.JasonLib", "Serializer"),
+                            TypeVariableName.get("ObjectRead"),
+                            TypeVariableName.get("ObjectWrite"),
+                            TypeVariableName.get("PrimitiveRead"),
+                            TypeVariableName.get("PrimitiveWrite")),
+                        "s")
+                    .addException(IOException.class)
                     .addStatement(stmt.toString())
                     .build());
+
+            type.addMethod(keyedReader(instance));
+        }
+
+        /**
+         * {@code readKeyed(s, child)}, used when the serializer is {@code keyed}: it takes fields
+         * in payload order and switches on each name straight to the member's local, passing over
+         * unknown names, then checks that every member but the optionals was present.
+         */
+        static MethodSpec keyedReader(Instance instance) throws Error
+        {
+            MethodSpec.Builder method = MethodSpec.methodBuilder("readKeyed")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addTypeVariable(TypeVariableName.get("ObjectRead"))
+                .addTypeVariable(TypeVariableName.get("ObjectWrite"))
+                .addTypeVariable(TypeVariableName.get("PrimitiveRead"))
+                .addTypeVariable(TypeVariableName.get("PrimitiveWrite"))
+                .returns(instance.fullName())
+                .addParameter(
+                    ParameterizedTypeName.get(
+                        ClassName.get("com.github.mortimersmith.jason.JasonLib", "Serializer"),
+                        TypeVariableName.get("ObjectRead"),
+                        TypeVariableName.get("ObjectWrite"),
+                        TypeVariableName.get("PrimitiveRead"),
+                        TypeVariableName.get("PrimitiveWrite")),
+                    "s")
+                .addParameter(ClassName.get("", "ObjectRead"), "child")
+                .addException(IOException.class);
+            List<Member> required = new ArrayList<>();
+            for (Member m : instance.members) {
+                if (m.type.isOptional()) method.addStatement("$T _$N = $T.empty()", m.type(), m.name, Optional.class);
+                else if (m.type().isPrimitive()) method.addStatement("$T _$N = $L", m.type(), m.name, m.type() == TypeName.BOOLEAN ? "false" : "0");
+                else method.addStatement("$T _$N = null", m.type(), m.name);
+                if (!m.type.isOptional()) required.add(m);
+            }
+            for (int i = 0; i < required.size(); i += 64) method.addStatement("long seen$L = 0", i / 64);
+            method.beginControlFlow("for (String field; (field = s.nextField(child)) != null; )");
+            method.beginControlFlow("switch (field)");
+            for (Member m : instance.members) {
+                StringBuilder read = new StringBuilder("_" + m.name + " = ");
+                serializableReaderField(m, "child", read);
+                method.addCode("case $S:\n$>", m.name);
+                method.addStatement(read.toString());
+                int r = required.indexOf(m);
+                if (r >= 0) method.addStatement("seen$L |= 0x$LL", r / 64, Long.toHexString(1L << r % 64));
+                method.addStatement("break");
+                method.addCode("$<");
+            }
+            method.endControlFlow();
+            method.endControlFlow();
+            for (int i = 0; i < required.size(); i += 64) {
+                int n = Math.min(64, required.size() - i);
+                method.beginControlFlow("if (seen$L != 0x$LL)", i / 64, Long.toHexString(n == 64 ? -1L : (1L << n) - 1));
+                for (int j = 0; j < n; ++j) {
+                    Member m = required.get(i + j);
+                    method.addStatement("if ((seen$L & 0x$LL) == 0) throw new $T($S)", i / 64, Long.toHexString(1L << j), IOException.class, "missing field: " + m.name);
+                }
+                method.endControlFlow();
+            }
+            StringBuilder stmt = new StringBuilder();
+            stmt.append("return ").append(instance.name).append(".of(");
+            emitEach(instance.members, ", ", stmt, (m) -> stmt.append("_").append(m.name));
+            stmt.append(")");
+            method.addStatement(stmt.toString());
+            return method.build();
+        }
+
+        /**
+         * Partial decoding: {@code reader(s, Fields...)} decodes only the listed members, passing
+         * over the rest with the serializer's skip operations and leaving them at their defaults;
+         * {@code from(Fields...)} does the same for {@code unwrap}. {@code skipper(s)} passes over a
+         * whole value, for members of this type being skipped. Skippers and projected readers are
+         * kept by the serializer, as {@code serializableReader} keeps the full ones, so a
+         * projection decodes without building its reader again.
+         */
+        static void projection(Instance instance, TypeSpec.Builder type) throws Error
+        {
+            ParameterizedTypeName serializer = ParameterizedTypeName.get(
+                ClassName.get("com.github.mortimersmith.jason.JasonLib", "Serializer"),
+                TypeVariableName.get("ObjectRead"),
+                TypeVariableName.get("ObjectWrite"),
+                TypeVariableName.get("PrimitiveRead"),
+                TypeVariableName.get("PrimitiveWrite"));
+            ParameterizedTypeName reader = ParameterizedTypeName.get(
+                ClassName.get("com.github.mortimersmith.jason.JasonLib.Serializer", "Reader"),
+                TypeVariableName.get("PrimitiveRead"),
+                TypeVariableName.get(instance.name));
+
+            type.addField(
+                FieldSpec.builder(Object.class, "SKIPPER", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                    .initializer("new $T()", Object.class)
+                    .build());
+            type.addMethod(
+                MethodSpec.methodBuilder("skipper")
+                    .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                    .addTypeVariable(TypeVariableName.get("ObjectRead"))
+                    .addTypeVariable(TypeVariableName.get("ObjectWrite"))
+                    .addTypeVariable(TypeVariableName.get("PrimitiveRead"))
+                    .addTypeVariable(TypeVariableName.get("PrimitiveWrite"))
+                    .returns(reader)
+                    .addParameter(serializer, "s")
+                    .addException(IOException.class)
+                    .addStatement("return s.cachedReader(SKIPPER, $N::newSkipper)", instance.name)
+                    .build());
+
+            StringBuilder skip = new StringBuilder();
+            skip.append("return (context) -> { ");
+            skip.append("ObjectRead child = s.childContext(context, SCHEMA); ");
+            for (Member m : instance.members) {
+                serializableSkipperField(m, "child", skip);
+                skip.append("; ");
+            }
+            skip.append("return null; }");
+            type.addMethod(
+                MethodSpec.methodBuilder("newSkipper")
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                    .addTypeVariable(TypeVariableName.get("ObjectRead"))
+                    .addTypeVariable(TypeVariableName.get("ObjectWrite"))
+                    .addTypeVariable(TypeVariableName.get("PrimitiveRead"))
+                    .addTypeVariable(TypeVariableName.get("PrimitiveWrite"))
+                    .returns(reader)
+                    .addParameter(serializer, "s")
+                    .addException(IOException.class)
+                    .addStatement(skip.toString())
+                    .build());
+
+            if (instance.members.isEmpty()) return;
+
+            TypeSpec.Builder fields = TypeSpec.enumBuilder("Fields")
+                .addModifiers(Modifier.PUBLIC);
+            for (Member m : instance.members)
+                fields.addEnumConstant(constant(m.name));
+            type.addType(fields.build());
+
+            ClassName fieldsName = ClassName.get("", "Fields");
+            ClassName projectionName = ClassName.get("", "Projection");
+            ParameterizedTypeName projection = ParameterizedTypeName.get(ClassName.get(EnumSet.class), fieldsName);
+            ParameterizedTypeName from = ParameterizedTypeName.get(
+                ClassName.get("com.github.mortimersmith.jason", "JasonLib", "From"),
+                ClassName.get("", instance.name));
+            ParameterizedTypeName factory = ParameterizedTypeName.get(
+                ClassName.get("com.github.mortimersmith.jason.JasonLib.Serializer", "ReaderFactory"),
+                ClassName.get("", instance.name));
+            type.addType(
+                TypeSpec.classBuilder("Projection")
+                    .addJavadoc("A set of members to decode, which is also its readers' key in the serializer.\n")
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                    .addSuperinterface(from)
+                    .addSuperinterface(factory)
+                    .addField(projection, "_fields", Modifier.PRIVATE, Modifier.FINAL)
+                    .addMethod(
+                        MethodSpec.constructorBuilder()
+                            .addModifiers(Modifier.PRIVATE)
+                            .addParameter(projection, "fields")
+                            .addStatement("_fields = fields")
+                            .build())
+                    .addMethod(
+                        MethodSpec.methodBuilder("get")
+                            .addAnnotation(Override.class)
+                            .addModifiers(Modifier.PUBLIC)
+                            .addTypeVariable(TypeVariableName.get("ObjectRead"))
+                            .addTypeVariable(TypeVariableName.get("ObjectWrite"))
+                            .addTypeVariable(TypeVariableName.get("PrimitiveRead"))
+                            .addTypeVariable(TypeVariableName.get("PrimitiveWrite"))
+                            .returns(ClassName.get("", instance.name))
+                            .addParameter(serializer, "s")
+                            .addParameter(TypeVariableName.get("PrimitiveRead"), "o")
+                            .addException(IOException.class)
+                            .addStatement("return s.cachedReader(this, this).read(o)")
+                            .build())
+                    .addMethod(
+                        MethodSpec.methodBuilder("create")
+                            .addAnnotation(Override.class)
+                            .addModifiers(Modifier.PUBLIC)
+                            .addTypeVariable(TypeVariableName.get("ObjectRead"))
+                            .addTypeVariable(TypeVariableName.get("ObjectWrite"))
+                            .addTypeVariable(TypeVariableName.get("PrimitiveRead"))
+                            .addTypeVariable(TypeVariableName.get("PrimitiveWrite"))
+                            .returns(reader)
+                            .addParameter(serializer, "s")
+                            .addException(IOException.class)
+                            .addStatement("return reader(s, _fields)")
+                            .build())
+                    .addMethod(
+                        MethodSpec.methodBuilder("equals")
+                            .addAnnotation(Override.class)
+                            .addModifiers(Modifier.PUBLIC)
+                            .returns(boolean.class)
+                            .addParameter(Object.class, "o")
+                            .addStatement("return o instanceof Projection && (($T)o)._fields.equals(_fields)", projectionName)
+                            .build())
+                    .addMethod(
+                        MethodSpec.methodBuilder("hashCode")
+                            .addAnnotation(Override.class)
+                            .addModifiers(Modifier.PUBLIC)
+                            .returns(int.class)
+                            .addStatement("return _fields.hashCode()")
+                            .build())
+                    .build());
+
+            type.addMethod(
+                MethodSpec.methodBuilder("reader")
+                    .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                    .addTypeVariable(TypeVariableName.get("ObjectRead"))
+                    .addTypeVariable(TypeVariableName.get("ObjectWrite"))
+                    .addTypeVariable(TypeVariableName.get("PrimitiveRead"))
+                    .addTypeVariable(TypeVariableName.get("PrimitiveWrite"))
+                    .returns(reader)
+                    .addParameter(serializer, "s")
+                    .addParameter(ArrayTypeName.of(fieldsName), "fields")
+                    .varargs()
+                    .addException(IOException.class)
+                    .addStatement("$T p = new $T(projection(fields))", projectionName, projectionName)
+                    .addStatement("return s.cachedReader(p, p)")
+                    .build());
+
+            type.addMethod(
+                MethodSpec.methodBuilder("from")
+                    .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                    .returns(from)
+                    .addParameter(ArrayTypeName.of(fieldsName), "fields")
+                    .varargs()
+                    .addStatement("return new $T(projection(fields))", projectionName)
+                    .build());
+
+            type.addMethod(
+                MethodSpec.methodBuilder("projection")
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                    .returns(projection)
+                    .addParameter(ArrayTypeName.of(fieldsName), "fields")
+                    .addStatement("$T projection = $T.noneOf($T.class)", projection, EnumSet.class, fieldsName)
+                    .addStatement("$T.addAll(projection, fields)", Collections.class)
+                    .addStatement("return projection")
+                    .build());
+
+            MethodSpec.Builder method = MethodSpec.methodBuilder("reader")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addTypeVariable(TypeVariableName.get("ObjectRead"))
+                .addTypeVariable(TypeVariableName.get("ObjectWrite"))
+                .addTypeVariable(TypeVariableName.get("PrimitiveRead"))
+                .addTypeVariable(TypeVariableName.get("PrimitiveWrite"))
+                .returns(reader)
+                .addParameter(serializer, "s")
+                .addParameter(projection, "projection")
+                .addException(IOException.class)
+                .addCode("return (context) -> {\n$>")
+                .addStatement("ObjectRead child = s.childContext(context, SCHEMA)");
+            for (Member m : instance.members) {
+                if (m.type.isBoolean()) method.addStatement("$T _$N = false", m.type(), m.name);
+                else if (m.type.isInteger()) method.addStatement("$T _$N = 0", m.type(), m.name);
+                else if (m.type.isLong()) method.addStatement("$T _$N = 0L", m.type(), m.name);
+                else if (m.type.isFloat()) method.addStatement("$T _$N = 0f", m.type(), m.name);
+                else if (m.type.isDouble()) method.addStatement("$T _$N = 0d", m.type(), m.name);
+                else if (m.packed) method.addStatement("$T _$N = new $T[0]", m.type(), m.name, m.templates[0].type());
+                else if (m.type.isOptional()) method.addStatement("$T _$N = $T.empty()", m.type(), m.name, Optional.class);
+                else if (m.type.isList()) method.addStatement("$T _$N = $T.emptyList()", m.type(), m.name, Collections.class);
+                else if (m.type.isMap()) method.addStatement("$T _$N = $T.emptyMap()", m.type(), m.name, Collections.class);
+                else method.addStatement("$T _$N = null", m.type(), m.name);
+
+                StringBuilder read = new StringBuilder("_" + m.name + " = ");
+                serializableReaderField(m, "child", read);
+                StringBuilder skipField = new StringBuilder();
+                serializableSkipperField(m, "child", skipField);
+                method
+                    .beginControlFlow("if (projection.contains(Fields.$L))", constant(m.name))
+                    .addStatement(read.toString())
+                    .nextControlFlow("else")
+                    .addStatement(skipField.toString())
+                    .endControlFlow();
+            }
+            StringBuilder stmt = new StringBuilder();
+            stmt.append("return ").append(instance.name).append(".of(");
+            emitEach(instance.members, ", ", stmt, (m) -> stmt.append("_").append(m.name));
+            stmt.append(")");
+            method
+                .addStatement(stmt.toString())
+                .addCode("$<};\n");
+            type.addMethod(method.build());
+        }
+
+        static String constant(String member)
+        {
+            StringBuilder out = new StringBuilder();
+            for (int i = 0; i < member.length(); ++i) {
+                char c = member.charAt(i);
+                if (i > 0 && Character.isUpperCase(c) && !Character.isUpperCase(member.charAt(i - 1))) out.append('_');
+                out.append(Character.toUpperCase(c));
+            }
+            return out.toString();
+        }
+
+        /**
+         * Value equality over all members. The hash is computed on first use and kept in
+         * {@code _hashCode}, which also lets equals reject most mismatches without comparing
+         * members once both sides have been hashed.
+         */
+        static void equalsAndHashCode(Instance instance, TypeSpec.Builder type) throws Error
+        {
+            ClassName self = ClassName.get("", instance.name);
+            type.addField(FieldSpec.builder(TypeName.INT, "_hashCode", Modifier.PRIVATE).build());
+
+            MethodSpec.Builder equals = MethodSpec.methodBuilder("equals")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(TypeName.BOOLEAN)
+                .addParameter(Object.class, "o")
+                .addStatement("if (o == this) return true")
+                .addStatement("if (!(o instanceof $T)) return false", self)
+                .addStatement("$T that = ($T)o", self, self)
+                .addStatement("if (_hashCode != 0 && that._hashCode != 0 && _hashCode != that._hashCode) return false");
+            StringBuilder stmt = new StringBuilder("return ");
+            List<Object> args = new ArrayList<>();
+            if (instance.members.isEmpty()) stmt.append("true");
+            emitEach(instance.members, "\n    && ", stmt, (m) -> {
+                if (m.type.isFloat()) stmt.append("Float.compare(_").append(m.name).append(", that._").append(m.name).append(") == 0");
+                else if (m.type.isDouble()) stmt.append("Double.compare(_").append(m.name).append(", that._").append(m.name).append(") == 0");
+                else if (m.type.isBoolean() || m.type.isInteger() || m.type.isLong()) stmt.append("_").append(m.name).append(" == that._").append(m.name);
+                else {
+                    stmt.append("$T.equals(_").append(m.name).append(", that._").append(m.name).append(")");
+                    args.add(m.packed ? Arrays.class : Objects.class);
+                }
+            });
+            equals.addStatement(stmt.toString(), args.toArray());
+            type.addMethod(equals.build());
+
+            MethodSpec.Builder hashCode = MethodSpec.methodBuilder("hashCode")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(TypeName.INT)
+                .addStatement("int h = _hashCode")
+                .beginControlFlow("if (h == 0)")
+                .addStatement("h = 1");
+            for (Member m : instance.members) {
+                if (m.type.isBoolean()) hashCode.addStatement("h = 31 * h + Boolean.hashCode(_$N)", m.name);
+                else if (m.type.isInteger()) hashCode.addStatement("h = 31 * h + Integer.hashCode(_$N)", m.name);
+                else if (m.type.isLong()) hashCode.addStatement("h = 31 * h + Long.hashCode(_$N)", m.name);
+                else if (m.type.isFloat()) hashCode.addStatement("h = 31 * h + Float.hashCode(_$N)", m.name);
+                else if (m.type.isDouble()) hashCode.addStatement("h = 31 * h + Double.hashCode(_$N)", m.name);
+                else if (m.packed) hashCode.addStatement("h = 31 * h + $T.hashCode(_$N)", Arrays.class, m.name);
+                else hashCode.addStatement("h = 31 * h + $T.hashCode(_$N)", Objects.class, m.name);
+            }
+            hashCode
+                .addStatement("_hashCode = h")
+                .endControlFlow()
+                .addStatement("return h");
+            type.addMethod(hashCode.build());
         }
 
         static void serializableWriter(Instance instance, TypeSpec.Builder type) throws Error
@@ -385,7 +948,8 @@ public class Compiler
                         TypeVariableName.get("PrimitiveWrite")),
                     "s")
                 .addParameter(TypeVariableName.get("ObjectWrite"), "context")
-                .addException(IOException.class);
+                .addException(IOException.class)
+                .addStatement("context = s.writeContext(context, SCHEMA)");
 
             for (Member m : instance.members) {
                 StringBuilder stmt = new StringBuilder();
@@ -409,12 +973,340 @@ public class Compiler
             type.addMethod(method.build());
         }
 
-        static void typeClassification(Member m, StringBuilder out) throws Error
+        /**
+         * A {@code View} of the type over one serialized object, decoding each member on first
+         * access and keeping it; {@code view} creates one where {@code from} would decode eagerly.
+         *
+         * A view fills itself in as it is read, so it is mutable and not thread-safe; one bit per
+         * member in {@code _decoded0}, {@code _decoded1}, ... records what has been decoded, so a
+         * member that decodes to null is not decoded again.
+         */
+        static void view(Instance instance, TypeSpec.Builder type) throws Error
+        {
+            ClassName source = ClassName.get("com.github.mortimersmith.jason", "JasonLib", "Source");
+            ClassName self = ClassName.get("", "View");
+
+            type.addMethod(
+                MethodSpec.methodBuilder("view")
+                    .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                    .addTypeVariable(TypeVariableName.get("ObjectRead"))
+                    .addTypeVariable(TypeVariableName.get("ObjectWrite"))
+                    .addTypeVariable(TypeVariableName.get("PrimitiveRead"))
+                    .addTypeVariable(TypeVariableName.get("PrimitiveWrite"))
+                    .returns(self)
+                    .addParameter(
+                        ParameterizedTypeName.get(
+                            ClassName.get("com.github.mortimersmith.jason.JasonLib", "Serializer"),
+                            TypeVariableName.get("ObjectRead"),
+                            TypeVariableName.get("ObjectWrite"),
+                            TypeVariableName.get("PrimitiveRead"),
+                            TypeVariableName.get("PrimitiveWrite")),
+                        "s")
+                    .addParameter(ClassName.get("", "PrimitiveRead"), "o")
+                    .addException(IOException.class)
+                    .addStatement("return new View($T.of(s, s.childContext(o, SCHEMA)))", source)
+                    .build());
+
+            TypeSpec.Builder view = TypeSpec.classBuilder("View")
+                .addJavadoc("Decodes each member on first access; mutable and not thread-safe.\n")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addSuperinterface(JasonLib.Serializable.class);
+            ifaces(instance, view);
+            view.addField(FieldSpec.builder(source, "_source", Modifier.PRIVATE, Modifier.FINAL).build());
+            view.addField(FieldSpec.builder(TypeName.INT, "_next", Modifier.PRIVATE).build());
+            for (int word = 0; word * 64 < instance.members.size(); ++word)
+                view.addField(FieldSpec.builder(TypeName.LONG, "_decoded" + word, Modifier.PRIVATE).build());
+            for (Member m : instance.members)
+                view.addField(FieldSpec.builder(m.type(), "_" + m.name, Modifier.PRIVATE).build());
+            view.addMethod(
+                MethodSpec.constructorBuilder()
+                    .addModifiers(Modifier.PRIVATE)
+                    .addParameter(source, "source")
+                    .addStatement("_source = source")
+                    .build());
+
+            int index = 0;
+            for (Member m : instance.members) {
+                view.addMethod(
+                    MethodSpec.methodBuilder(m.name)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(m.type())
+                        .addStatement("if ((_decoded$L & 1L << $L) == 0) decode($L)", index / 64, index % 64, index++)
+                        .addStatement("return _$N", m.name)
+                        .build());
+            }
+
+            StringBuilder stmt = new StringBuilder();
+            stmt.append("return ").append(instance.name).append(".of(");
+            emitEach(instance.members, ", ", stmt, (m) -> stmt.append(m.name).append("()"));
+            stmt.append(")");
+            view.addMethod(
+                MethodSpec.methodBuilder("materialize")
+                    .addModifiers(Modifier.PUBLIC)
+                    .returns(instance.fullName())
+                    .addStatement(stmt.toString())
+                    .build());
+
+            view.addMethod(
+                MethodSpec.methodBuilder("serialize")
+                    .addAnnotation(Override.class)
+                    .addModifiers(Modifier.PUBLIC)
+                    .addTypeVariable(TypeVariableName.get("ObjectRead"))
+                    .addTypeVariable(TypeVariableName.get("ObjectWrite"))
+                    .addTypeVariable(TypeVariableName.get("PrimitiveRead"))
+                    .addTypeVariable(TypeVariableName.get("PrimitiveWrite"))
+                    .returns(TypeVariableName.get("ObjectWrite"))
+                    .addParameter(
+                        ParameterizedTypeName.get(
+                            ClassName.get("com.github.mortimersmith.jason.JasonLib", "Serializer"),
+                            TypeVariableName.get("ObjectRead"),
+                            TypeVariableName.get("ObjectWrite"),
+                            TypeVariableName.get("PrimitiveRead"),
+                            TypeVariableName.get("PrimitiveWrite")),
+                        "s")
+                    .addParameter(TypeVariableName.get("ObjectWrite"), "context")
+                    .addException(IOException.class)
+                    .addStatement("return materialize().serialize(s, context)")
+                    .build());
+
+            MethodSpec.Builder decode = MethodSpec.methodBuilder("decode")
+                .addModifiers(Modifier.PRIVATE)
+                .addParameter(TypeName.INT, "field")
+                .beginControlFlow("if (!_source.randomAccess())")
+                .addStatement("while (_next < field) decodeField(_next++)")
+                .addStatement("if (_next == field) ++_next; else return")
+                .endControlFlow()
+                .addStatement("decodeField(field)");
+            view.addMethod(decode.build());
+
+            MethodSpec.Builder decodeField = MethodSpec.methodBuilder("decodeField")
+                .addModifiers(Modifier.PRIVATE)
+                .addParameter(TypeName.INT, "field")
+                .beginControlFlow("switch (field)");
+            index = 0;
+            for (Member m : instance.members) {
+                String reader = "read" + Character.toUpperCase(m.name.charAt(0)) + m.name.substring(1);
+                decodeField.addStatement(
+                    "case $L: _$N = _source.read(View::$N); _decoded$L |= 1L << $L; break",
+                    index, m.name, reader, index / 64, index % 64);
+                ++index;
+
+                StringBuilder read = new StringBuilder("return ");
+                serializableReaderField(m, "context", read);
+                view.addMethod(
+                    MethodSpec.methodBuilder(reader)
+                        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                        .addTypeVariable(TypeVariableName.get("ObjectRead"))
+                        .addTypeVariable(TypeVariableName.get("ObjectWrite"))
+                        .addTypeVariable(TypeVariableName.get("PrimitiveRead"))
+                        .addTypeVariable(TypeVariableName.get("PrimitiveWrite"))
+                        .returns(m.type().box())
+                        .addParameter(
+                            ParameterizedTypeName.get(
+                                ClassName.get("com.github.mortimersmith.jason.JasonLib", "Serializer"),
+                                TypeVariableName.get("ObjectRead"),
+                                TypeVariableName.get("ObjectWrite"),
+                                TypeVariableName.get("PrimitiveRead"),
+                                TypeVariableName.get("PrimitiveWrite")),
+                            "s")
+                        .addParameter(TypeVariableName.get("ObjectRead"), "context")
+                        .addException(IOException.class)
+                        .addStatement(read.toString())
+                        .build());
+            }
+            decodeField.endControlFlow();
+            view.addMethod(decodeField.build());
+
+            type.addType(view.build());
+        }
+
+        /**
+         * A mutable {@code Reusable} companion, and {@code readInto}, which decodes over one in
+         * place: lists and maps are cleared and refilled, and members of reusable types are
+         * decoded into their own companions, so a steady stream of messages can be read without
+         * allocating a new object graph for each.
+         *
+         * Only lists and maps that {@code readInto} made itself are refilled; one handed in through
+         * a setter is replaced, since it may be shared or unmodifiable. {@code build} copies them,
+         * so the value it returns never changes under a later {@code readInto}. The readers for
+         * members of reusable types are made once per serializer and kept in the companion.
+         */
+        static void reusable(Instance instance, TypeSpec.Builder type) throws Error
+        {
+            ClassName self = ClassName.get("", "Reusable");
+            TypeSpec.Builder reusable = TypeSpec.classBuilder("Reusable")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addSuperinterface(JasonLib.Serializable.class);
+            for (Member m : instance.members)
+                reusable.addField(FieldSpec.builder(reusableType(instance, m), "_" + m.name, Modifier.PRIVATE).build());
+            boolean collections = instance.members.stream().anyMatch((m) -> !m.packed && (m.type.isList() || m.type.isMap()));
+            boolean nested = instance.members.stream().anyMatch((m) -> reusable(instance, m));
+            if (collections) {
+                reusable.addField(
+                    FieldSpec.builder(Object[].class, "owned", Modifier.PRIVATE, Modifier.FINAL)
+                        .initializer("new Object[$L]", instance.members.size())
+                        .build());
+            }
+            if (nested) {
+                reusable.addField(FieldSpec.builder(Object.class, "readersFor", Modifier.PRIVATE).build());
+                reusable.addField(FieldSpec.builder(Object[].class, "readers", Modifier.PRIVATE).build());
+            }
+            for (Member m : instance.members) {
+                reusable.addMethod(
+                    MethodSpec.methodBuilder(m.name)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(reusableType(instance, m))
+                        .addStatement("return _$N", m.name)
+                        .build());
+                reusable.addMethod(
+                    MethodSpec.methodBuilder(m.name)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(self)
+                        .addParameter(reusableType(instance, m), m.name)
+                        .addStatement("_$N = $N", m.name, m.name)
+                        .addStatement("return this")
+                        .build());
+            }
+
+            StringBuilder stmt = new StringBuilder();
+            List<Object> args = new ArrayList<>();
+            stmt.append("return ").append(instance.name).append(".of(");
+            emitEach(instance.members, ", ", stmt, (m) -> {
+                if (reusable(instance, m)) {
+                    stmt.append("_").append(m.name).append(" == null ? null : _").append(m.name).append(".build()");
+                } else if (!m.packed && (m.type.isList() || m.type.isMap())) {
+                    stmt.append("_").append(m.name).append(" == null ? null : new $T<>(_").append(m.name).append(")");
+                    args.add(m.type.isList() ? ArrayList.class : LinkedHashMap.class);
+                } else {
+                    stmt.append("_").append(m.name);
+                }
+            });
+            stmt.append(")");
+            reusable.addMethod(
+                MethodSpec.methodBuilder("build")
+                    .addModifiers(Modifier.PUBLIC)
+                    .returns(instance.fullName())
+                    .addStatement(stmt.toString(), args.toArray())
+                    .build());
+            serializableWriter(instance, reusable);
+            type.addType(reusable.build());
+
+            MethodSpec.Builder method = MethodSpec.methodBuilder("readInto")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addTypeVariable(TypeVariableName.get("ObjectRead"))
+                .addTypeVariable(TypeVariableName.get("ObjectWrite"))
+                .addTypeVariable(TypeVariableName.get("PrimitiveRead"))
+                .addTypeVariable(TypeVariableName.get("PrimitiveWrite"))
+                .returns(self)
+                .addParameter(
+                    ParameterizedTypeName.get(
+                        ClassName.get("com.github.mortimersmith.jason.JasonLib", "Serializer"),
+                        TypeVariableName.get("ObjectRead"),
+                        TypeVariableName.get("ObjectWrite"),
+                        TypeVariableName.get("PrimitiveRead"),
+                        TypeVariableName.get("PrimitiveWrite")),
+                    "s")
+                .addParameter(ClassName.get("", "PrimitiveRead"), "o")
+                .addParameter(self, "into")
+                .addException(IOException.class)
+                .addStatement("$T r = into == null ? new $T() : into", self, self)
+                .addStatement("ObjectRead child = s.childContext(o, SCHEMA)");
+            if (nested) {
+                method.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked").build());
+                method.beginControlFlow("if (r.readersFor != s)");
+                method.addCode("r.readers = new Object[] {$>\n");
+                int k = 0;
+                for (Member m : instance.members) {
+                    if (!reusable(instance, m)) continue;
+                    method.addCode("$L($T.Serializer.Reader<PrimitiveRead, $L.Reusable>)(p) -> $L.readInto(s, p, r._$L)\n",
+                        k++ == 0 ? "" : ", ", JasonLib.class, m.type.name(), m.type.name(), m.name);
+                }
+                method.addCode("$<};\n");
+                method.addStatement("r.readersFor = s");
+                method.endControlFlow();
+            }
+            int i = 0, reader = 0;
+            for (Member m : instance.members) {
+                StringBuilder read = new StringBuilder("r._" + m.name + " = ");
+                if (reusable(instance, m)) {
+                    read.append("s.readPrimitive(child, \"").append(m.name).append("\", ($T.Serializer.Reader<PrimitiveRead, ")
+                        .append(m.type.name()).append(".Reusable>)r.readers[").append(reader++).append("])");
+                    method.addStatement(read.toString(), JasonLib.class);
+                } else if (!m.packed && (m.type.isList() || m.type.isMap())) {
+                    serializableReaderField(m, "child", read);
+                    read.setLength(read.length() - 1);
+                    read.append(", r._").append(m.name).append(" == r.owned[").append(i).append("] ? r._").append(m.name).append(" : null)");
+                    method.addStatement(read.toString());
+                    method.addStatement("r.owned[$L] = r._$N", i, m.name);
+                } else {
+                    serializableReaderField(m, "child", read);
+                    method.addStatement(read.toString());
+                }
+                ++i;
+            }
+            method.addStatement("return r");
+            type.addMethod(method.build());
+        }
+
+        static boolean reusable(Instance instance, Member m)
+        {
+            Instance of = instance.instances.types.get(m.type.name());
+            return of != null && of.reusable;
+        }
+
+        static TypeName reusableType(Instance instance, Member m)
         {
+            return reusable(instance, m) ? ClassName.get("", m.type.name(), "Reusable") : m.type();
+        }
+
+        static void serializableReaderField(Member m, String context, StringBuilder out) throws Error
+        {
+            out.append("s.read");
+            typeClassification(m, out);
+            out.append("(").append(context).append(", \"");
+            out.append(m.name);
+            out.append("\", ");
+            if (!m.type.templatized()) {
+                serializableReaderPrimitive(m.type, out);
+            } else {
+                emitEach(m.templates, ", ", out, (t) -> serializableReaderPrimitive(t, out));
+            }
+            out.append(")");
+        }
+
+        static void serializableSkipperField(Member m, String context, StringBuilder out) throws Error
+        {
+            out.append("s.skip");
             if (m.type.isOptional()) out.append("Optional");
             else if (m.type.isList()) out.append("List");
             else if (m.type.isMap()) out.append("Map");
             else out.append("Primitive");
+            out.append("(").append(context).append(", \"");
+            out.append(m.name);
+            out.append("\", ");
+            if (!m.type.templatized()) {
+                serializableSkipperPrimitive(m.type, out);
+            } else {
+                emitEach(m.templates, ", ", out, (t) -> serializableSkipperPrimitive(t, out));
+            }
+            out.append(")");
+        }
+
+        static void typeClassification(Member m, StringBuilder out) throws Error
+        {
+            if (m.packed && m.templates[0].isInteger()) out.append("Ints");
+            else if (m.packed && m.templates[0].isLong()) out.append("Longs");
+            else if (m.packed && m.templates[0].isFloat()) out.append("Floats");
+            else if (m.packed) out.append("Doubles");
+            else if (m.type.isOptional()) out.append("Optional");
+            else if (m.type.isList()) out.append("List");
+            else if (m.type.isMap()) out.append("Map");
+            else if (m.type.isBoolean()) out.append("Boolean");
+            else if (m.type.isInteger()) out.append("Int");
+            else if (m.type.isLong()) out.append("Long");
+            else if (m.type.isFloat()) out.append("Float");
+            else if (m.type.isDouble()) out.append("Double");
+            else out.append("Primitive");
         }
 
         static void serializableReaderPrimitive(Symbol s, StringBuilder out) throws Error
@@ -428,6 +1320,14 @@ public class Compiler
             else out.append(s.name()).append(".serializableReader(s)");
         }
 
+        static void serializableSkipperPrimitive(Symbol s, StringBuilder out) throws Error
+        {
+            if (s.isBoolean() || s.isInteger() || s.isLong() || s.isFloat() || s.isDouble() || s.isString())
+                serializableReaderPrimitive(s, out);
+            else
+                out.append(s.name()).append(".skipper(s)");
+        }
+
         static void serializableWriterPrimitive(Symbol s, StringBuilder out) throws Error
         {
             if (s.isBoolean()) out.append("s.booleanWriter()");
@@ -448,6 +1348,7 @@ public class Compiler
         public static Error because(String msg) { return new Error(msg); }
         public interface ThrowingRunnable<E extends Exception> { void run() throws E; }
         public interface ThrowingSupplier<T, E extends Exception> { T get() throws E; }
+        public interface ThrowingFunction<T, R, E extends Exception> { R apply(T t) throws E; }
         public static <E extends Exception> void run(ThrowingRunnable<E> r) throws Error { wrap(r); }
         public static <T, E extends Exception> T get(ThrowingSupplier<T, E> s) throws Error { return wrap(s); }
         public static <E extends Exception> void wrap(ThrowingRunnable<E> r) throws Error {
@@ -480,6 +1381,7 @@ public class Compiler
         public boolean isOptional() { return "optional".equals(_type); }
         public boolean isList() { return "list".equals(_type); }
         public boolean isMap() { return "map".equals(_type); }
+        public boolean packable() { return isInteger() || isLong() || isFloat() || isDouble(); }
         public boolean templatized() { return "optional".equals(_type) || "list".equals(_type) || "map".equals(_type); }
 
         public String toString() { return name(); }
@@ -544,7 +1446,7 @@ public class Compiler
     public static class Package
     {
         public String name;
-        public final Map<String, Instances> namespaces = new HashMap<>();
+        public final Map<String, Instances> namespaces = new LinkedHashMap<>();
     }
 
     public static class Instances
@@ -552,14 +1454,16 @@ public class Compiler
         public Package pkg;
         public Instances parent;
         public String name;
-        public final Map<String, Instances> namespaces = new HashMap<>();
-        public final Map<String, Instance> types = new HashMap<>();
+        public final Map<String, Instances> namespaces = new LinkedHashMap<>();
+        public final Map<String, Instance> types = new LinkedHashMap<>();
     }
 
     public static class Instance
     {
         public Instances instances;
         public String name;
+        public boolean view;
+        public boolean reusable;
         public final List<String> ifaces = new LinkedList<>();
         public final List<Member> members = new LinkedList<>();
 
@@ -587,11 +1491,24 @@ public class Compiler
     public static class Member
     {
         public String name;
+        public int id;
         public Symbol type;
         public Symbol[] templates;
+        public boolean packed;
+
+        /**
+         * The Java type of the member: a primitive array for a packed list, otherwise its symbol's.
+         */
+        public TypeName type() {
+            return packed ? ArrayTypeName.of(templates[0].type()) : type.type();
+        }
 
         public void emitType(StringBuilder out) throws Error
         {
+            if (packed) {
+                out.append(templates[0]).append("[]");
+                return;
+            }
             out.append(type);
             if (templates != null && templates.length > 0) {
                 out.append("<");
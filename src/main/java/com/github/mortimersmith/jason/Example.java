@@ -1,11 +1,13 @@
 package com.github.mortimersmith.jason;
 
+import com.github.mortimersmith.jason.JasonLib;
 import com.github.mortimersmith.jason.JasonLib.IBuilder;
 import com.github.mortimersmith.jason.JasonLib.Serializable;
 import com.github.mortimersmith.jason.JasonLib.Serializer;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -13,10 +15,18 @@ public class Example
 {
     static class Foo implements Serializable
     {
+        public static final JasonLib.Schema SCHEMA = JasonLib.Schema.builder()
+            .field("primitive", 1, JasonLib.Schema.Kind.BOOLEAN)
+            .field("optional", 2, JasonLib.Schema.Kind.OPTIONAL, JasonLib.Schema.Kind.LONG)
+            .field("list", 3, JasonLib.Schema.Kind.LIST, JasonLib.Schema.Kind.INT)
+            .field("map", 4, JasonLib.Schema.Kind.MAP, JasonLib.Schema.Kind.STRING, JasonLib.Schema.Kind.OBJECT)
+            .build();
+
         private final Boolean _primitive;
         private final Optional<Long> _optional;
         private final List<Integer> _list;
         private final Map<String, Bar> _map;
+        private int _hashCode;
 
         private Foo(Boolean primitive, Optional<Long> optional, List<Integer> list, Map<String, Bar> map) {
             _primitive = primitive;
@@ -65,6 +75,32 @@ public class Example
         public Map<String, Bar> map() { return _map; }
         public Foo map(Map<String, Bar> map) { return Foo.of(_primitive, _optional, _list, map); }
 
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (!(o instanceof Foo)) return false;
+            Foo that = (Foo)o;
+            if (_hashCode != 0 && that._hashCode != 0 && _hashCode != that._hashCode) return false;
+            return Objects.equals(_primitive, that._primitive)
+                && Objects.equals(_optional, that._optional)
+                && Objects.equals(_list, that._list)
+                && Objects.equals(_map, that._map);
+        }
+
+        @Override
+        public int hashCode() {
+            int h = _hashCode;
+            if (h == 0) {
+                h = 1;
+                h = 31 * h + Objects.hashCode(_primitive);
+                h = 31 * h + Objects.hashCode(_optional);
+                h = 31 * h + Objects.hashCode(_list);
+                h = 31 * h + Objects.hashCode(_map);
+                _hashCode = h;
+            }
+            return h;
+        }
+
         public static
             <ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> Foo
             from(Serializer<ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> s, PrimitiveRead o)
@@ -77,9 +113,18 @@ public class Example
             <ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> Serializer.Reader<PrimitiveRead, Foo>
             serializableReader(Serializer<ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> s)
             throws IOException
+        {
+            return s.serializableReader(Foo.class, Foo::newSerializableReader);
+        }
+
+        private static
+            <ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> Serializer.Reader<PrimitiveRead, Foo>
+            newSerializableReader(Serializer<ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> s)
+            throws IOException
         {
             return (context) -> {
-                ObjectRead child = s.childContext(context);
+                ObjectRead child = s.childContext(context, SCHEMA);
+                if (s.keyed()) return readKeyed(s, child);
                 return Foo.of
                     ( s.readPrimitive(child, "primitive", s.booleanReader())
                     , s.readOptional(child, "optional", s.longReader())
@@ -89,11 +134,49 @@ public class Example
             };
         }
 
+        private static
+            <ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> Foo
+            readKeyed(Serializer<ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> s, ObjectRead child)
+            throws IOException
+        {
+            Boolean _primitive = null;
+            Optional<Long> _optional = Optional.empty();
+            List<Integer> _list = null;
+            Map<String, Bar> _map = null;
+            long seen0 = 0;
+            for (String field; (field = s.nextField(child)) != null; ) {
+                switch (field) {
+                    case "primitive":
+                        _primitive = s.readPrimitive(child, "primitive", s.booleanReader());
+                        seen0 |= 0x1L;
+                        break;
+                    case "optional":
+                        _optional = s.readOptional(child, "optional", s.longReader());
+                        break;
+                    case "list":
+                        _list = s.readList(child, "list", s.integerReader());
+                        seen0 |= 0x2L;
+                        break;
+                    case "map":
+                        _map = s.readMap(child, "map", s.stringReader(), Bar.serializableReader(s));
+                        seen0 |= 0x4L;
+                        break;
+                }
+            }
+            if (seen0 != 0x7L) {
+                if ((seen0 & 0x1L) == 0) throw new IOException("missing field: primitive");
+                if ((seen0 & 0x2L) == 0) throw new IOException("missing field: list");
+                if ((seen0 & 0x4L) == 0) throw new IOException("missing field: map");
+            }
+            return Foo.of(_primitive, _optional, _list, _map);
+        }
+
         public <ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite>
             ObjectWrite
             serialize(Serializer<ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> s, ObjectWrite context)
             throws IOException
         {
+            context = s.writeContext(context, SCHEMA);
             s.writePrimitive(context, "primitive", s.booleanWriter(), _primitive);
             s.writeOptional(context, "optional", s.longWriter(), _optional);
             s.writeList(context, "list", s.integerWriter(), _list);
@@ -104,12 +187,24 @@ public class Example
 
     static class Bar implements Serializable
     {
+        public static final JasonLib.Schema SCHEMA = JasonLib.Schema.builder().build();
+
         private Bar() {}
 
         public static Bar of() {
             return new Bar();
         }
 
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Bar;
+        }
+
+        @Override
+        public int hashCode() {
+            return 1;
+        }
+
         public static
             <ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> Bar
             from(Serializer<ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> s, PrimitiveRead o)
@@ -123,14 +218,39 @@ public class Example
             serializableReader(Serializer<ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> s)
             throws IOException
         {
-            return (c) -> Bar.of();
+            return s.serializableReader(Bar.class, Bar::newSerializableReader);
+        }
+
+        private static
+            <ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> Serializer.Reader<PrimitiveRead, Bar>
+            newSerializableReader(Serializer<ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> s)
+            throws IOException
+        {
+            return (context) -> {
+                ObjectRead child = s.childContext(context, SCHEMA);
+                if (s.keyed()) return readKeyed(s, child);
+                return Bar.of();
+            };
+        }
+
+        private static
+            <ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> Bar
+            readKeyed(Serializer<ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> s, ObjectRead child)
+            throws IOException
+        {
+            for (String field; (field = s.nextField(child)) != null; ) {
+                switch (field) {
+                }
+            }
+            return Bar.of();
         }
 
         public <ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite>
             ObjectWrite
             serialize(Serializer<ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> s, ObjectWrite context)
+            throws IOException
         {
-            return context;
+            return s.writeContext(context, SCHEMA);
         }
     }
 
@@ -1,9 +1,16 @@
 package com.github.mortimersmith.jason;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class JasonLib
 {
@@ -19,6 +26,434 @@ public class JasonLib
         T build();
     }
 
+    /**
+     * Per-serializer cache of the readers built for generated types, keyed by the type or, for
+     * skippers and projections, by a key of the type's own.
+     */
+    public static class ReaderCache<PrimitiveRead>
+    {
+        private final ConcurrentHashMap<Object, Serializer.Reader<PrimitiveRead, ?>> _readers = new ConcurrentHashMap<>();
+
+        @SuppressWarnings("unchecked")
+        public <ObjectRead, ObjectWrite, PrimitiveWrite, T> Serializer.Reader<PrimitiveRead, T>
+            get(Serializer<ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> s, Object key, Serializer.ReaderFactory<T> factory)
+            throws IOException
+        {
+            Serializer.Reader<PrimitiveRead, ?> r = _readers.get(key);
+            if (r == null) {
+                r = factory.create(s);
+                Serializer.Reader<PrimitiveRead, ?> prior = _readers.putIfAbsent(key, r);
+                if (prior != null) r = prior;
+            }
+            return (Serializer.Reader<PrimitiveRead, T>)r;
+        }
+    }
+
+    /**
+     * Creates the lists and maps that serializers read into, so values can be decoded straight
+     * into another collection type. {@code expected} is the element count when the encoding gives
+     * it up front, bounded by what the input could hold, and -1 otherwise.
+     */
+    public interface CollectionFactory
+    {
+        interface ListBuilder<T> {
+            void add(T t);
+            List<T> build();
+        }
+
+        interface MapBuilder<K, V> {
+            void put(K key, V value);
+            Map<K, V> build();
+        }
+
+        <T> ListBuilder<T> list(int expected);
+        <K, V> MapBuilder<K, V> map(int expected);
+
+        /**
+         * A builder that clears and refills {@code into}, or, if it is null, a new one as above.
+         */
+        default <T> ListBuilder<T> list(int expected, List<T> into) {
+            if (into == null) return list(expected);
+            into.clear();
+            return new ListBuilder<T>() {
+                @Override
+                public void add(T t) {
+                    into.add(t);
+                }
+
+                @Override
+                public List<T> build() {
+                    return into;
+                }
+            };
+        }
+
+        default <K, V> MapBuilder<K, V> map(int expected, Map<K, V> into) {
+            if (into == null) return map(expected);
+            into.clear();
+            return new MapBuilder<K, V>() {
+                @Override
+                public void put(K key, V value) {
+                    into.put(key, value);
+                }
+
+                @Override
+                public Map<K, V> build() {
+                    return into;
+                }
+            };
+        }
+
+        /**
+         * {@link ArrayList}s and {@link HashMap}s, presized to the expected count.
+         */
+        CollectionFactory DEFAULT = new CollectionFactory() {
+            @Override
+            public <T> ListBuilder<T> list(int expected) {
+                List<T> l = expected < 0 ? new ArrayList<>() : new ArrayList<>(expected);
+                return new ListBuilder<T>() {
+                    @Override
+                    public void add(T t) {
+                        l.add(t);
+                    }
+
+                    @Override
+                    public List<T> build() {
+                        return l;
+                    }
+                };
+            }
+
+            @Override
+            public <K, V> MapBuilder<K, V> map(int expected) {
+                Map<K, V> m = expected < 0 ? new HashMap<>() : new HashMap<>((int)(expected / 0.75f) + 1);
+                return new MapBuilder<K, V>() {
+                    @Override
+                    public void put(K key, V value) {
+                        m.put(key, value);
+                    }
+
+                    @Override
+                    public Map<K, V> build() {
+                        return m;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * A bounded cache of decoded strings, so that repeated values share one instance. Each string
+     * hashes to a single slot and replaces whatever was there, so the cache never grows and can be
+     * shared between threads without locking. Strings longer than {@code maxLength} are not cached.
+     */
+    public static final class StringCache
+    {
+        private final String[] _slots;
+        private final int _maxLength;
+
+        public StringCache(int slots) {
+            this(slots, 64);
+        }
+
+        public StringCache(int slots, int maxLength) {
+            if (slots <= 0 || slots > 1 << 30) throw new IllegalArgumentException("invalid size: " + slots);
+            int size = 1;
+            while (size < slots) size <<= 1;
+            _slots = new String[size];
+            _maxLength = maxLength;
+        }
+
+        private int slot(int hash) {
+            return (hash ^ hash >>> 16) & (_slots.length - 1);
+        }
+
+        /**
+         * The cached string equal to {@code s}, or {@code s} itself, which is then cached.
+         */
+        public String intern(String s) {
+            if (s.length() > _maxLength) return s;
+            int i = slot(s.hashCode());
+            String cached = _slots[i];
+            if (s.equals(cached)) return cached;
+            _slots[i] = s;
+            return s;
+        }
+
+        /**
+         * Decodes {@code length} bytes of UTF-8 at {@code at} in {@code b}, without moving its
+         * position. ASCII strings already in the cache are returned without decoding them again.
+         */
+        public String decode(ByteBuffer b, int at, int length) {
+            if (length > _maxLength) return utf8(b, at, length);
+            int h = 0;
+            for (int i = 0; i < length; ++i) {
+                byte c = b.get(at + i);
+                if (c < 0) return intern(utf8(b, at, length));
+                h = 31 * h + c;
+            }
+            int i = slot(h);
+            String cached = _slots[i];
+            if (cached != null && cached.length() == length && cached.hashCode() == h && ascii(cached, b, at)) return cached;
+            String s = utf8(b, at, length);
+            _slots[i] = s;
+            return s;
+        }
+
+        private static boolean ascii(String s, ByteBuffer b, int at) {
+            for (int i = 0; i < s.length(); ++i) {
+                if (s.charAt(i) != b.get(at + i)) return false;
+            }
+            return true;
+        }
+
+        private static String utf8(ByteBuffer b, int at, int length) {
+            if (b.hasArray()) return new String(b.array(), b.arrayOffset() + at, length, StandardCharsets.UTF_8);
+            byte[] bytes = new byte[length];
+            ByteBuffer d = b.duplicate();
+            d.position(at);
+            d.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * The members of a generated type, in declaration order, with their field ids, kinds and the
+     * kinds of their template arguments, and their names pre-encoded as UTF-8 and as JSON. Ids
+     * come from the spec and default to the member's one-based position. Generated types hold
+     * theirs in {@code SCHEMA} and hand it to {@link Serializer#childContext(Object, Schema)} and
+     * {@link Serializer#writeContext(Object, Schema)}, so serializers can address members by index.
+     */
+    public static final class Schema
+    {
+        public enum Kind { BOOLEAN, INT, LONG, FLOAT, DOUBLE, STRING, OBJECT, OPTIONAL, LIST, MAP, ARRAY }
+
+        private static final Kind[] NONE = new Kind[0];
+
+        private final String[] _names;
+        private final byte[][] _utf8;
+        private final byte[][] _json;
+        private final int[] _ids;
+        private final Kind[] _kinds;
+        private final Kind[][] _templates;
+        private final int[] _byName;
+        private final int[] _byId;
+        private final long[] _sorted;
+
+        private Schema(String[] names, int[] ids, Kind[] kinds, Kind[][] templates) {
+            _names = names;
+            _ids = ids;
+            _kinds = kinds;
+            _templates = templates;
+            _utf8 = new byte[names.length][];
+            _json = new byte[names.length][];
+            int size = 2;
+            while (size < 2 * names.length) size <<= 1;
+            _byName = new int[size];
+            for (int i = 0; i < names.length; ++i) {
+                _utf8[i] = names[i].getBytes(StandardCharsets.UTF_8);
+                _json[i] = json(names[i]);
+                int h = slot(names[i]);
+                while (_byName[h] != 0) {
+                    if (_names[_byName[h] - 1].equals(names[i])) throw new IllegalArgumentException("duplicate field name: " + names[i]);
+                    h = (h + 1) & (size - 1);
+                }
+                _byName[h] = i + 1;
+            }
+            int max = 0;
+            for (int id : ids) {
+                if (id <= 0) throw new IllegalArgumentException("invalid field id: " + id);
+                max = Math.max(max, id);
+            }
+            if (max <= 4 * ids.length + 64) {
+                _byId = new int[max + 1];
+                Arrays.fill(_byId, -1);
+                for (int i = 0; i < ids.length; ++i) {
+                    if (_byId[ids[i]] >= 0) throw new IllegalArgumentException("duplicate field id: " + ids[i]);
+                    _byId[ids[i]] = i;
+                }
+                _sorted = null;
+            } else {
+                _byId = null;
+                _sorted = new long[ids.length];
+                for (int i = 0; i < ids.length; ++i) _sorted[i] = (long)ids[i] << 32 | i;
+                Arrays.sort(_sorted);
+                for (int i = 1; i < _sorted.length; ++i) {
+                    if (_sorted[i] >>> 32 == _sorted[i - 1] >>> 32) throw new IllegalArgumentException("duplicate field id: " + (_sorted[i] >>> 32));
+                }
+            }
+        }
+
+        public static Builder builder() {
+            return new Builder();
+        }
+
+        public static final class Builder
+        {
+            private final List<String> _names = new ArrayList<>();
+            private final List<Integer> _ids = new ArrayList<>();
+            private final List<Kind> _kinds = new ArrayList<>();
+            private final List<Kind[]> _templates = new ArrayList<>();
+
+            private Builder() {
+            }
+
+            public Builder field(String name, int id, Kind kind, Kind... templates) {
+                _names.add(name);
+                _ids.add(id);
+                _kinds.add(kind);
+                _templates.add(templates.length == 0 ? NONE : templates.clone());
+                return this;
+            }
+
+            public Schema build() {
+                int[] ids = new int[_ids.size()];
+                for (int i = 0; i < ids.length; ++i) ids[i] = _ids.get(i);
+                return new Schema(
+                    _names.toArray(new String[0]),
+                    ids,
+                    _kinds.toArray(new Kind[0]),
+                    _templates.toArray(new Kind[0][]));
+            }
+        }
+
+        private int slot(String name) {
+            int h = name.hashCode();
+            return (h ^ h >>> 16) & (_byName.length - 1);
+        }
+
+        public int size() {
+            return _names.length;
+        }
+
+        public String name(int index) {
+            return _names[index];
+        }
+
+        /**
+         * The member's name as UTF-8, shared: it must not be modified.
+         */
+        public byte[] utf8(int index) {
+            return _utf8[index];
+        }
+
+        /**
+         * The member's name as a quoted, escaped JSON string followed by a colon, in UTF-8,
+         * shared: it must not be modified.
+         */
+        public byte[] json(int index) {
+            return _json[index];
+        }
+
+        private static byte[] json(String name) {
+            StringBuilder b = new StringBuilder(name.length() + 3).append('"');
+            for (int i = 0; i < name.length(); ++i) {
+                char c = name.charAt(i);
+                if (c == '"' || c == '\\') b.append('\\').append(c);
+                else if (c < 0x20 || c == '\u2028' || c == '\u2029') b.append(String.format("\\u%04x", (int)c));
+                else b.append(c);
+            }
+            return b.append("\":").toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        public int id(int index) {
+            return _ids[index];
+        }
+
+        public Kind kind(int index) {
+            return _kinds[index];
+        }
+
+        /**
+         * The kinds of an {@code OPTIONAL}, {@code LIST} or {@code ARRAY} member's elements, or
+         * of a {@code MAP} member's keys and values; empty for the other kinds.
+         */
+        public Kind[] templates(int index) {
+            return _templates[index].clone();
+        }
+
+        /**
+         * The index of the member with the given name, or -1.
+         */
+        public int indexOf(String name) {
+            for (int h = slot(name);; h = (h + 1) & (_byName.length - 1)) {
+                int i = _byName[h] - 1;
+                if (i < 0 || _names[i].equals(name)) return i;
+            }
+        }
+
+        /**
+         * As {@link #indexOf(String)}, checking {@code hint} first. Generated code names members
+         * with the same string constants the schema holds and visits them in order, so with the
+         * index after the previous member as the hint this is usually one reference comparison.
+         */
+        public int indexOf(String name, int hint) {
+            if (hint >= 0 && hint < _names.length && _names[hint] == name) return hint;
+            return indexOf(name);
+        }
+
+        /**
+         * The index of the member with the given id, or -1.
+         */
+        public int indexOfId(int id) {
+            if (_byId != null) return id >= 0 && id < _byId.length ? _byId[id] : -1;
+            int i = Arrays.binarySearch(_sorted, (long)id << 32);
+            if (i < 0) i = -i - 1;
+            return i < _sorted.length && _sorted[i] >>> 32 == id ? (int)_sorted[i] : -1;
+        }
+    }
+
+    /**
+     * One serialized object, kept by a generated view so its fields can be decoded on first access.
+     *
+     * If the serializer is {@link Serializer#randomAccess() random access} each field is read on
+     * its own; otherwise fields are read in declaration order, so the first access to a field also
+     * decodes the ones before it. Either way the view keeps reading from the context it was created
+     * over, so that context (a buffer's position, a stream) must be left to the view.
+     */
+    public static final class Source
+    {
+        public interface Field<T> {
+            <ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> T
+                read(Serializer<ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> s, ObjectRead context)
+                throws IOException;
+        }
+
+        private final Serializer<?, ?, ?, ?> _s;
+        private final Object _context;
+
+        private Source(Serializer<?, ?, ?, ?> s, Object context) {
+            _s = s;
+            _context = context;
+        }
+
+        public static <ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> Source
+            of(Serializer<ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> s, ObjectRead context)
+        {
+            return new Source(s, context);
+        }
+
+        public boolean randomAccess() {
+            return _s.randomAccess();
+        }
+
+        public <T> T read(Field<T> field) {
+            try {
+                return read(field, _s, _context);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T, ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> T
+            read(Field<T> field, Serializer<ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> s, Object context)
+            throws IOException
+        {
+            return field.read(s, (ObjectRead)context);
+        }
+    }
+
     public interface Serializable
     {
         <ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite>
@@ -37,31 +472,167 @@ public class JasonLib
             C write(C p, T t) throws IOException;
         }
 
-        ObjectRead childContext(PrimitiveRead context);
+        public interface ReaderFactory<T> {
+            <ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> Reader<PrimitiveRead, T>
+                create(Serializer<ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> s)
+                throws IOException;
+        }
+
+        public interface BooleanReader<C> extends Reader<C, Boolean> {
+            boolean readBoolean(C p) throws IOException;
+            default Boolean read(C p) throws IOException { return readBoolean(p); }
+        }
+
+        public interface IntReader<C> extends Reader<C, Integer> {
+            int readInt(C p) throws IOException;
+            default Integer read(C p) throws IOException { return readInt(p); }
+        }
+
+        public interface LongReader<C> extends Reader<C, Long> {
+            long readLong(C p) throws IOException;
+            default Long read(C p) throws IOException { return readLong(p); }
+        }
+
+        public interface FloatReader<C> extends Reader<C, Float> {
+            float readFloat(C p) throws IOException;
+            default Float read(C p) throws IOException { return readFloat(p); }
+        }
+
+        public interface DoubleReader<C> extends Reader<C, Double> {
+            double readDouble(C p) throws IOException;
+            default Double read(C p) throws IOException { return readDouble(p); }
+        }
+
+        public interface BooleanWriter<C> extends Writer<C, Boolean> {
+            C writeBoolean(C p, boolean t) throws IOException;
+            default C write(C p, Boolean t) throws IOException { return writeBoolean(p, t); }
+        }
+
+        public interface IntWriter<C> extends Writer<C, Integer> {
+            C writeInt(C p, int t) throws IOException;
+            default C write(C p, Integer t) throws IOException { return writeInt(p, t); }
+        }
+
+        public interface LongWriter<C> extends Writer<C, Long> {
+            C writeLong(C p, long t) throws IOException;
+            default C write(C p, Long t) throws IOException { return writeLong(p, t); }
+        }
 
-        Reader<PrimitiveRead, Boolean> booleanReader() throws IOException;
-        Reader<PrimitiveRead, Integer> integerReader() throws IOException;
-        Reader<PrimitiveRead, Long> longReader() throws IOException;
-        Reader<PrimitiveRead, Float> floatReader() throws IOException;
-        Reader<PrimitiveRead, Double> doubleReader() throws IOException;
+        public interface FloatWriter<C> extends Writer<C, Float> {
+            C writeFloat(C p, float t) throws IOException;
+            default C write(C p, Float t) throws IOException { return writeFloat(p, t); }
+        }
+
+        public interface DoubleWriter<C> extends Writer<C, Double> {
+            C writeDouble(C p, double t) throws IOException;
+            default C write(C p, Double t) throws IOException { return writeDouble(p, t); }
+        }
+
+        ObjectRead childContext(PrimitiveRead context) throws IOException;
+
+        /**
+         * The context for reading the members of a generated type. Serializers that address
+         * members by id rather than by name use the schema; the rest ignore it.
+         */
+        default ObjectRead childContext(PrimitiveRead context, Schema schema) throws IOException { return childContext(context); }
+
+        /**
+         * Called by a generated type before writing its members into {@code context}.
+         */
+        default ObjectWrite writeContext(ObjectWrite context, Schema schema) throws IOException { return context; }
+
+        /**
+         * Whether the fields of an object context can be read in any order, any number of times.
+         */
+        default boolean randomAccess() { return false; }
+
+        /**
+         * Whether {@link #nextField(Object)} is supported, in which case generated types read an
+         * object's fields in the order the payload has them, switching on each name in turn.
+         */
+        default boolean keyed() { return false; }
+
+        /**
+         * The name of the next field in {@code context}, or null after the last one. Its value is
+         * then read with the matching read method under that name; if it is not read, the next
+         * call passes over it. Serializers that are not {@link #keyed()} return null, as for an
+         * empty object.
+         */
+        default String nextField(ObjectRead context) throws IOException { return null; }
+
+        BooleanReader<PrimitiveRead> booleanReader() throws IOException;
+        IntReader<PrimitiveRead> integerReader() throws IOException;
+        LongReader<PrimitiveRead> longReader() throws IOException;
+        FloatReader<PrimitiveRead> floatReader() throws IOException;
+        DoubleReader<PrimitiveRead> doubleReader() throws IOException;
         Reader<PrimitiveRead, String> stringReader() throws IOException;
+        <T extends Serializable> Reader<PrimitiveRead, T> serializableReader(Class<T> type, ReaderFactory<T> factory) throws IOException;
 
+        /**
+         * The reader made by {@code factory}, kept under {@code key} as {@link #serializableReader}
+         * keeps readers under their type; generated types use it for their skippers and
+         * projections. By default nothing is kept.
+         */
+        default <T> Reader<PrimitiveRead, T> cachedReader(Object key, ReaderFactory<T> factory) throws IOException { return factory.create(this); }
+
+        boolean readBoolean(ObjectRead context, String field, BooleanReader<PrimitiveRead> as) throws IOException;
+        int readInt(ObjectRead context, String field, IntReader<PrimitiveRead> as) throws IOException;
+        long readLong(ObjectRead context, String field, LongReader<PrimitiveRead> as) throws IOException;
+        float readFloat(ObjectRead context, String field, FloatReader<PrimitiveRead> as) throws IOException;
+        double readDouble(ObjectRead context, String field, DoubleReader<PrimitiveRead> as) throws IOException;
         <T> T readPrimitive(ObjectRead context, String field, Reader<PrimitiveRead, T> as) throws IOException;
         <T> Optional<T> readOptional(ObjectRead context, String field, Reader<PrimitiveRead, T> of) throws IOException;
-        <T> List<T> readList(ObjectRead context, String field, Reader<PrimitiveRead, T> of) throws IOException;
-        <T, U> Map<T, U> readMap(ObjectRead context, String field, Reader<PrimitiveRead, T> rkey, Reader<PrimitiveRead, U> rvalue) throws IOException;
-
-        Writer<PrimitiveWrite, Boolean> booleanWriter() throws IOException;
-        Writer<PrimitiveWrite, Integer> integerWriter() throws IOException;
-        Writer<PrimitiveWrite, Long> longWriter() throws IOException;
-        Writer<PrimitiveWrite, Float> floatWriter() throws IOException;
-        Writer<PrimitiveWrite, Double> doubleWriter() throws IOException;
+        default <T> List<T> readList(ObjectRead context, String field, Reader<PrimitiveRead, T> of) throws IOException { return readList(context, field, of, null); }
+        default <T, U> Map<T, U> readMap(ObjectRead context, String field, Reader<PrimitiveRead, T> rkey, Reader<PrimitiveRead, U> rvalue) throws IOException { return readMap(context, field, rkey, rvalue, null); }
+
+        /**
+         * Reads a list or map into {@code into}, which must be mutable, clearing it first, and
+         * returns it; if {@code into} is null, reads into a new collection as above.
+         */
+        <T> List<T> readList(ObjectRead context, String field, Reader<PrimitiveRead, T> of, List<T> into) throws IOException;
+        <T, U> Map<T, U> readMap(ObjectRead context, String field, Reader<PrimitiveRead, T> rkey, Reader<PrimitiveRead, U> rvalue, Map<T, U> into) throws IOException;
+
+        /**
+         * Packed lists of scalars, read and written as primitive arrays without boxing. They are
+         * encoded exactly as the matching {@code List}, so a field can switch between the two
+         * without breaking existing data, and {@code skipList} passes over them.
+         */
+        int[] readInts(ObjectRead context, String field, IntReader<PrimitiveRead> of) throws IOException;
+        long[] readLongs(ObjectRead context, String field, LongReader<PrimitiveRead> of) throws IOException;
+        float[] readFloats(ObjectRead context, String field, FloatReader<PrimitiveRead> of) throws IOException;
+        double[] readDoubles(ObjectRead context, String field, DoubleReader<PrimitiveRead> of) throws IOException;
+
+        /**
+         * Passes over a field without building its value. The readers describe the field as for the
+         * matching read method; serializers that can find the end of a value on their own ignore
+         * them, the others step over scalars and strings and call the rest, which for generated
+         * types are {@code skipper}s that pass over each member in turn.
+         */
+        void skipPrimitive(ObjectRead context, String field, Reader<PrimitiveRead, ?> as) throws IOException;
+        void skipOptional(ObjectRead context, String field, Reader<PrimitiveRead, ?> of) throws IOException;
+        void skipList(ObjectRead context, String field, Reader<PrimitiveRead, ?> of) throws IOException;
+        void skipMap(ObjectRead context, String field, Reader<PrimitiveRead, ?> rkey, Reader<PrimitiveRead, ?> rvalue) throws IOException;
+
+        BooleanWriter<PrimitiveWrite> booleanWriter() throws IOException;
+        IntWriter<PrimitiveWrite> integerWriter() throws IOException;
+        LongWriter<PrimitiveWrite> longWriter() throws IOException;
+        FloatWriter<PrimitiveWrite> floatWriter() throws IOException;
+        DoubleWriter<PrimitiveWrite> doubleWriter() throws IOException;
         Writer<PrimitiveWrite, String> stringWriter() throws IOException;
         <T extends Serializable> Writer<PrimitiveWrite, T> serializableWriter() throws IOException;
 
+        ObjectWrite writeBoolean(ObjectWrite context, String field, BooleanWriter<PrimitiveWrite> as, boolean value) throws IOException;
+        ObjectWrite writeInt(ObjectWrite context, String field, IntWriter<PrimitiveWrite> as, int value) throws IOException;
+        ObjectWrite writeLong(ObjectWrite context, String field, LongWriter<PrimitiveWrite> as, long value) throws IOException;
+        ObjectWrite writeFloat(ObjectWrite context, String field, FloatWriter<PrimitiveWrite> as, float value) throws IOException;
+        ObjectWrite writeDouble(ObjectWrite context, String field, DoubleWriter<PrimitiveWrite> as, double value) throws IOException;
         <T> ObjectWrite writePrimitive(ObjectWrite context, String field, Writer<PrimitiveWrite, T> as, T value) throws IOException;
         <T> ObjectWrite writeOptional(ObjectWrite context, String field, Writer<PrimitiveWrite, T> of, Optional<T> value) throws IOException;
         <T> ObjectWrite writeList(ObjectWrite context, String field, Writer<PrimitiveWrite, T> of, List<T> value) throws IOException;
         <T, U> ObjectWrite writeMap(ObjectWrite context, String field, Writer<PrimitiveWrite, T> wkey, Writer<PrimitiveWrite, U> wvalue, Map<T, U> value) throws IOException;
+        ObjectWrite writeInts(ObjectWrite context, String field, IntWriter<PrimitiveWrite> of, int[] value) throws IOException;
+        ObjectWrite writeLongs(ObjectWrite context, String field, LongWriter<PrimitiveWrite> of, long[] value) throws IOException;
+        ObjectWrite writeFloats(ObjectWrite context, String field, FloatWriter<PrimitiveWrite> of, float[] value) throws IOException;
+        ObjectWrite writeDoubles(ObjectWrite context, String field, DoubleWriter<PrimitiveWrite> of, double[] value) throws IOException;
     }
 }
@@ -0,0 +1,175 @@
+package com.github.mortimersmith.jason;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Incremental compilation of a directory of specs.
+ *
+ * A cache file records, for every spec, its content hash and the files generated from it, so a
+ * later run compiles only the specs whose content changed. Specs are the top-level {@code .json}
+ * files of the directory, as for {@link Compiler#compile(Path, Path)}.
+ */
+public final class SpecCache
+{
+    private SpecCache()
+    {
+    }
+
+    private static final class Entry
+    {
+        final String hash;
+        final List<String> outputs;
+
+        Entry(String hash, List<String> outputs)
+        {
+            this.hash = hash;
+            this.outputs = outputs;
+        }
+    }
+
+    /**
+     * Compiles the specs in {@code specs} that changed since the run that wrote {@code cache}
+     * and returns them. The outputs of removed specs, and those a changed spec no longer
+     * generates, are deleted; the others are rewritten only if their content changed. With
+     * {@code clean}, or without a usable cache, {@code target} is emptied and every spec is
+     * compiled. The cache is removed while compiling and written back only on success, so a
+     * failed run is followed by a clean one.
+     */
+    public static List<Path> compile(Path specs, Path target, Path cache, boolean clean) throws Compiler.Error
+    {
+        Map<String, Entry> entries = clean ? null : read(cache);
+        Compiler.Error.run(() -> Files.deleteIfExists(cache));
+        if (entries == null) {
+            entries = new TreeMap<>();
+            clear(target);
+        }
+
+        List<Path> present = Compiler.specs(specs);
+        Set<String> names = present.stream().map(Path::toString).collect(Collectors.toSet());
+        for (Iterator<Map.Entry<String, Entry>> i = entries.entrySet().iterator(); i.hasNext(); ) {
+            Map.Entry<String, Entry> e = i.next();
+            if (names.contains(e.getKey())) continue;
+            delete(target, e.getValue().outputs);
+            i.remove();
+        }
+
+        List<Path> changed = new ArrayList<>();
+        Map<String, String> hashes = new HashMap<>();
+        for (Path spec : present) {
+            String hash = hash(spec);
+            Entry entry = entries.get(spec.toString());
+            if (entry != null && entry.hash.equals(hash) && entry.outputs.stream().allMatch((o) -> Files.isRegularFile(target.resolve(o)))) continue;
+            changed.add(spec);
+            hashes.put(spec.toString(), hash);
+        }
+
+        if (!changed.isEmpty()) {
+            Map<Path, List<Path>> outputs = Compiler.compile(changed, target);
+            Map<String, String> owners = new HashMap<>();
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                if (hashes.containsKey(e.getKey())) continue;
+                for (String o : e.getValue().outputs) owners.put(o, e.getKey());
+            }
+            for (Map.Entry<Path, List<Path>> e : outputs.entrySet()) {
+                String spec = e.getKey().toString();
+                List<String> files = e.getValue().stream().map((f) -> target.relativize(f).toString()).collect(Collectors.toList());
+                for (String f : files) {
+                    String owner = owners.get(f);
+                    if (owner != null) throw Compiler.Error.because(spec + ": generates " + f + ", which is already generated by " + owner);
+                }
+                Entry old = entries.get(spec);
+                if (old != null) {
+                    Set<String> kept = new HashSet<>(files);
+                    delete(target, old.outputs.stream().filter((o) -> !kept.contains(o)).collect(Collectors.toList()));
+                }
+                entries.put(spec, new Entry(hashes.get(spec), files));
+            }
+        }
+
+        write(cache, entries);
+        return changed;
+    }
+
+    /**
+     * The entries in {@code cache}, or null if it is missing or unreadable.
+     */
+    private static Map<String, Entry> read(Path cache)
+    {
+        if (!Files.isRegularFile(cache)) return null;
+        try {
+            JsonObject json = new JsonParser().parse(new String(Files.readAllBytes(cache), StandardCharsets.UTF_8)).getAsJsonObject();
+            Map<String, Entry> entries = new TreeMap<>();
+            for (Map.Entry<String, JsonElement> e : json.entrySet()) {
+                JsonObject entry = e.getValue().getAsJsonObject();
+                List<String> outputs = new ArrayList<>();
+                for (JsonElement o : entry.getAsJsonArray("outputs")) outputs.add(o.getAsString());
+                entries.put(e.getKey(), new Entry(entry.get("hash").getAsString(), outputs));
+            }
+            return entries;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void write(Path cache, Map<String, Entry> entries) throws Compiler.Error
+    {
+        JsonObject json = new JsonObject();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            JsonObject entry = new JsonObject();
+            entry.addProperty("hash", e.getValue().hash);
+            JsonArray outputs = new JsonArray();
+            for (String o : e.getValue().outputs) outputs.add(new JsonPrimitive(o));
+            entry.add("outputs", outputs);
+            json.add(e.getKey(), entry);
+        }
+        Compiler.Error.run(() -> {
+            if (cache.getParent() != null) Files.createDirectories(cache.getParent());
+            Files.write(cache, json.toString().getBytes(StandardCharsets.UTF_8));
+        });
+    }
+
+    private static void clear(Path target) throws Compiler.Error
+    {
+        if (!Files.isDirectory(target)) return;
+        Compiler.Error.run(() -> {
+            try (Stream<Path> walk = Files.walk(target)) {
+                for (Path p : walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    if (!p.equals(target)) Files.delete(p);
+                }
+            }
+        });
+    }
+
+    private static void delete(Path target, List<String> outputs) throws Compiler.Error
+    {
+        for (String o : outputs) Compiler.Error.run(() -> Files.deleteIfExists(target.resolve(o)));
+    }
+
+    private static String hash(Path spec) throws Compiler.Error
+    {
+        byte[] digest = Compiler.Error.get(() -> MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(spec)));
+        StringBuilder hex = new StringBuilder(2 * digest.length);
+        for (byte b : digest) hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        return hex.toString();
+    }
+}
@@ -0,0 +1,593 @@
+package com.github.mortimersmith.jason.binary;
+
+import com.github.mortimersmith.jason.JasonLib;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Binary serializer over {@link ByteBuffer}s.
+ *
+ * Values are laid out positionally, like {@link com.github.mortimersmith.jason.msgpack.MessagePack}:
+ * scalars are fixed width in the buffer's byte order, strings are a length followed by UTF-8
+ * bytes, optionals are a presence byte, and lists and maps are a count followed by their elements.
+ * An {@link Output} can also {@link Output#referenceStrings() reference strings}: a repeated
+ * string is then written as a negative length, the distance back to its first occurrence.
+ * Reads consume from the buffer's position, so any buffer works, including a
+ * {@link java.nio.MappedByteBuffer} or one filled from a channel. Writes go to an {@link Output},
+ * which grows its buffer on demand.
+ */
+public class Buffers implements JasonLib.Serializer<ByteBuffer, Buffers.Output, ByteBuffer, Buffers.Output>
+{
+    public static final Buffers INSTANCE = new Buffers();
+
+    private final JasonLib.CollectionFactory _collections;
+    private final JasonLib.StringCache _strings;
+    private final JasonLib.ReaderCache<ByteBuffer> _readers = new JasonLib.ReaderCache<>();
+    private final JasonLib.Serializer.BooleanReader<ByteBuffer> _booleanReader = (b) -> b.get() != 0;
+    private final JasonLib.Serializer.IntReader<ByteBuffer> _integerReader = (b) -> b.getInt();
+    private final JasonLib.Serializer.LongReader<ByteBuffer> _longReader = (b) -> b.getLong();
+    private final JasonLib.Serializer.FloatReader<ByteBuffer> _floatReader = (b) -> b.getFloat();
+    private final JasonLib.Serializer.DoubleReader<ByteBuffer> _doubleReader = (b) -> b.getDouble();
+    private final JasonLib.Serializer.Reader<ByteBuffer, String> _stringReader = (b) -> readString(b);
+    private final JasonLib.Serializer.BooleanWriter<Output> _booleanWriter = (o, value) -> { o.ensure(1).put(value ? (byte)1 : (byte)0); return o; };
+    private final JasonLib.Serializer.IntWriter<Output> _integerWriter = (o, value) -> { o.ensure(4).putInt(value); return o; };
+    private final JasonLib.Serializer.LongWriter<Output> _longWriter = (o, value) -> { o.ensure(8).putLong(value); return o; };
+    private final JasonLib.Serializer.FloatWriter<Output> _floatWriter = (o, value) -> { o.ensure(4).putFloat(value); return o; };
+    private final JasonLib.Serializer.DoubleWriter<Output> _doubleWriter = (o, value) -> { o.ensure(8).putDouble(value); return o; };
+    private final JasonLib.Serializer.Writer<Output, String> _stringWriter = (o, value) -> o.putString(value);
+    private final JasonLib.Serializer.Writer<Output, JasonLib.Serializable> _serializableWriter = (o, value) -> value.serialize(Buffers.this, o);
+
+    public Buffers() {
+        this(JasonLib.CollectionFactory.DEFAULT);
+    }
+
+    /**
+     * A serializer that reads lists and maps into collections made by {@code collections}.
+     */
+    public Buffers(JasonLib.CollectionFactory collections) {
+        this(collections, null);
+    }
+
+    /**
+     * As above, also looking up the strings it reads in {@code strings}, if not null.
+     */
+    public Buffers(JasonLib.CollectionFactory collections, JasonLib.StringCache strings) {
+        _collections = collections;
+        _strings = strings;
+    }
+
+    /**
+     * Serializes into a new heap buffer, returned ready for reading.
+     */
+    public static <T extends JasonLib.Serializable> ByteBuffer wrap(T t) throws IOException
+    {
+        Output out = Output.heap(256);
+        t.serialize(INSTANCE, out);
+        return out.flip();
+    }
+
+    /**
+     * Serializes into a caller-owned buffer, starting at its position. Returns the buffer that
+     * holds the result, positioned after it: the given one if it was large enough, otherwise a
+     * larger buffer of the same kind holding everything the given one did.
+     */
+    public static <T extends JasonLib.Serializable> ByteBuffer wrap(T t, ByteBuffer out) throws IOException
+    {
+        return t.serialize(INSTANCE, new Output(out)).buffer();
+    }
+
+    public static <T extends JasonLib.Serializable> Output wrap(T t, Output out) throws IOException
+    {
+        if (out._references != null) out._references.clear();
+        return t.serialize(INSTANCE, out);
+    }
+
+    /**
+     * Deserializes from the buffer's position, leaving it positioned after the value.
+     */
+    public static <T extends JasonLib.Serializable> T unwrap(ByteBuffer in, JasonLib.From<T> from) throws IOException
+    {
+        try {
+            return from.get(INSTANCE, in);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("truncated buffer", e);
+        }
+    }
+
+    /**
+     * A growable write position. Growing replaces the buffer with one twice as large, of the same
+     * kind (heap or direct) and byte order.
+     */
+    public static class Output
+    {
+        private ByteBuffer _buffer;
+        private Map<String, Integer> _references;
+
+        public Output(ByteBuffer buffer) {
+            _buffer = buffer;
+        }
+
+        /**
+         * Writes every string after its first occurrence in a message as a reference back to it,
+         * which saves its bytes for the price of a lookup on write. Any reader decodes them, as
+         * long as the message is read from one buffer. A message starts at each {@code wrap} or
+         * {@link #clear()}.
+         */
+        public Output referenceStrings() {
+            _references = new HashMap<>();
+            return this;
+        }
+
+        public static Output heap(int capacity) {
+            return new Output(ByteBuffer.allocate(capacity));
+        }
+
+        public static Output direct(int capacity) {
+            return new Output(ByteBuffer.allocateDirect(capacity));
+        }
+
+        public ByteBuffer buffer() {
+            return _buffer;
+        }
+
+        public ByteBuffer flip() {
+            _buffer.flip();
+            return _buffer;
+        }
+
+        public Output clear() {
+            _buffer.clear();
+            if (_references != null) _references.clear();
+            return this;
+        }
+
+        public ByteBuffer ensure(int bytes) {
+            if (_buffer.remaining() >= bytes) return _buffer;
+            int capacity = Math.max(_buffer.capacity() * 2, _buffer.position() + bytes);
+            ByteBuffer grown = _buffer.isDirect()
+                ? ByteBuffer.allocateDirect(capacity)
+                : ByteBuffer.allocate(capacity);
+            grown.order(_buffer.order());
+            _buffer.flip();
+            grown.put(_buffer);
+            _buffer = grown;
+            return _buffer;
+        }
+
+        private Output putString(String s) {
+            if (_references != null && !s.isEmpty()) {
+                ByteBuffer b = ensure(4);
+                Integer first = _references.putIfAbsent(s, b.position());
+                if (first != null) {
+                    b.putInt(first - b.position());
+                    return this;
+                }
+            }
+            ByteBuffer b = ensure(4 + 3 * s.length());
+            int start = b.position();
+            b.position(start + 4);
+            putUtf8(b, s);
+            b.putInt(start, b.position() - start - 4);
+            return this;
+        }
+
+        /**
+         * Encodes {@code s} as UTF-8 at the buffer's position; the buffer must have three bytes
+         * per char remaining.
+         */
+        static void putUtf8(ByteBuffer b, String s) {
+            int len = s.length();
+            for (int i = 0; i < len; ++i) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    b.put((byte)c);
+                } else if (c < 0x800) {
+                    b.put((byte)(0xc0 | (c >> 6)));
+                    b.put((byte)(0x80 | (c & 0x3f)));
+                } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    b.put((byte)(0xf0 | (cp >> 18)));
+                    b.put((byte)(0x80 | ((cp >> 12) & 0x3f)));
+                    b.put((byte)(0x80 | ((cp >> 6) & 0x3f)));
+                    b.put((byte)(0x80 | (cp & 0x3f)));
+                } else if (Character.isSurrogate(c)) {
+                    b.put((byte)'?');
+                } else {
+                    b.put((byte)(0xe0 | (c >> 12)));
+                    b.put((byte)(0x80 | ((c >> 6) & 0x3f)));
+                    b.put((byte)(0x80 | (c & 0x3f)));
+                }
+            }
+        }
+    }
+
+    private String readString(ByteBuffer b) throws IOException {
+        int at = b.position();
+        int len = b.getInt();
+        if (len < 0) {
+            int first = at + len;
+            int flen = first >= 0 ? b.getInt(first) : -1;
+            if (flen < 0 || flen > at - first - 4) throw new IOException("invalid string reference: " + len);
+            return string(b, first + 4, flen);
+        }
+        if (len > b.remaining()) throw new IOException("invalid string length: " + len);
+        String s = string(b, b.position(), len);
+        b.position(b.position() + len);
+        return s;
+    }
+
+    private String string(ByteBuffer b, int at, int len) {
+        if (_strings != null) return _strings.decode(b, at, len);
+        if (b.hasArray()) return new String(b.array(), b.arrayOffset() + at, len, StandardCharsets.UTF_8);
+        byte[] bytes = new byte[len];
+        ByteBuffer d = b.duplicate();
+        d.position(at);
+        d.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readCount(ByteBuffer b) throws IOException {
+        int len = b.getInt();
+        if (len < 0) throw new IOException("invalid length: " + len);
+        return len;
+    }
+
+    @Override
+    public ByteBuffer childContext(ByteBuffer context) {
+        return context;
+    }
+
+    @Override
+    public JasonLib.Serializer.BooleanReader<ByteBuffer> booleanReader() throws IOException {
+        return _booleanReader;
+    }
+
+    @Override
+    public JasonLib.Serializer.IntReader<ByteBuffer> integerReader() throws IOException {
+        return _integerReader;
+    }
+
+    @Override
+    public JasonLib.Serializer.LongReader<ByteBuffer> longReader() throws IOException {
+        return _longReader;
+    }
+
+    @Override
+    public JasonLib.Serializer.FloatReader<ByteBuffer> floatReader() throws IOException {
+        return _floatReader;
+    }
+
+    @Override
+    public JasonLib.Serializer.DoubleReader<ByteBuffer> doubleReader() throws IOException {
+        return _doubleReader;
+    }
+
+    @Override
+    public JasonLib.Serializer.Reader<ByteBuffer, String> stringReader() throws IOException {
+        return _stringReader;
+    }
+
+    @Override
+    public <T extends JasonLib.Serializable> JasonLib.Serializer.Reader<ByteBuffer, T> serializableReader(Class<T> type, JasonLib.Serializer.ReaderFactory<T> factory) throws IOException {
+        return _readers.get(this, type, factory);
+    }
+
+    @Override
+    public <T> JasonLib.Serializer.Reader<ByteBuffer, T> cachedReader(Object key, JasonLib.Serializer.ReaderFactory<T> factory) throws IOException {
+        return _readers.get(this, key, factory);
+    }
+
+    @Override
+    public boolean readBoolean(ByteBuffer context, String field, JasonLib.Serializer.BooleanReader<ByteBuffer> as) throws IOException {
+        return as.readBoolean(context);
+    }
+
+    @Override
+    public int readInt(ByteBuffer context, String field, JasonLib.Serializer.IntReader<ByteBuffer> as) throws IOException {
+        return as.readInt(context);
+    }
+
+    @Override
+    public long readLong(ByteBuffer context, String field, JasonLib.Serializer.LongReader<ByteBuffer> as) throws IOException {
+        return as.readLong(context);
+    }
+
+    @Override
+    public float readFloat(ByteBuffer context, String field, JasonLib.Serializer.FloatReader<ByteBuffer> as) throws IOException {
+        return as.readFloat(context);
+    }
+
+    @Override
+    public double readDouble(ByteBuffer context, String field, JasonLib.Serializer.DoubleReader<ByteBuffer> as) throws IOException {
+        return as.readDouble(context);
+    }
+
+    @Override
+    public <T> T readPrimitive(ByteBuffer context, String field, JasonLib.Serializer.Reader<ByteBuffer, T> as) throws IOException {
+        return as.read(context);
+    }
+
+    @Override
+    public <T> Optional<T> readOptional(ByteBuffer context, String field, JasonLib.Serializer.Reader<ByteBuffer, T> of) throws IOException {
+        return _booleanReader.readBoolean(context)
+            ? Optional.of(of.read(context))
+            : Optional.empty()
+            ;
+    }
+
+    @Override
+    public <T> List<T> readList(ByteBuffer context, String field, JasonLib.Serializer.Reader<ByteBuffer, T> of, List<T> into) throws IOException {
+        int len = readCount(context);
+        JasonLib.CollectionFactory.ListBuilder<T> l = _collections.list(Math.min(len, context.remaining()), into);
+        for (int i = 0; i < len; ++i) l.add(of.read(context));
+        return l.build();
+    }
+
+    @Override
+    public <T, U> Map<T, U> readMap(ByteBuffer context, String field, JasonLib.Serializer.Reader<ByteBuffer, T> rkey, JasonLib.Serializer.Reader<ByteBuffer, U> rvalue, Map<T, U> into) throws IOException {
+        int len = readCount(context);
+        JasonLib.CollectionFactory.MapBuilder<T, U> m = _collections.map(Math.min(len, context.remaining()), into);
+        for (int i = 0; i < len; ++i) m.put(rkey.read(context), rvalue.read(context));
+        return m.build();
+    }
+
+    @Override
+    public int[] readInts(ByteBuffer context, String field, JasonLib.Serializer.IntReader<ByteBuffer> of) throws IOException {
+        int len = readCount(context);
+        if ((long)len * 4 > context.remaining()) throw new BufferUnderflowException();
+        int[] r = new int[len];
+        if (of == _integerReader) {
+            context.asIntBuffer().get(r);
+            context.position(context.position() + len * 4);
+        } else {
+            for (int i = 0; i < len; ++i) r[i] = of.readInt(context);
+        }
+        return r;
+    }
+
+    @Override
+    public long[] readLongs(ByteBuffer context, String field, JasonLib.Serializer.LongReader<ByteBuffer> of) throws IOException {
+        int len = readCount(context);
+        if ((long)len * 8 > context.remaining()) throw new BufferUnderflowException();
+        long[] r = new long[len];
+        if (of == _longReader) {
+            context.asLongBuffer().get(r);
+            context.position(context.position() + len * 8);
+        } else {
+            for (int i = 0; i < len; ++i) r[i] = of.readLong(context);
+        }
+        return r;
+    }
+
+    @Override
+    public float[] readFloats(ByteBuffer context, String field, JasonLib.Serializer.FloatReader<ByteBuffer> of) throws IOException {
+        int len = readCount(context);
+        if ((long)len * 4 > context.remaining()) throw new BufferUnderflowException();
+        float[] r = new float[len];
+        if (of == _floatReader) {
+            context.asFloatBuffer().get(r);
+            context.position(context.position() + len * 4);
+        } else {
+            for (int i = 0; i < len; ++i) r[i] = of.readFloat(context);
+        }
+        return r;
+    }
+
+    @Override
+    public double[] readDoubles(ByteBuffer context, String field, JasonLib.Serializer.DoubleReader<ByteBuffer> of) throws IOException {
+        int len = readCount(context);
+        if ((long)len * 8 > context.remaining()) throw new BufferUnderflowException();
+        double[] r = new double[len];
+        if (of == _doubleReader) {
+            context.asDoubleBuffer().get(r);
+            context.position(context.position() + len * 8);
+        } else {
+            for (int i = 0; i < len; ++i) r[i] = of.readDouble(context);
+        }
+        return r;
+    }
+
+    /**
+     * The encoded width of the values {@code as} reads, or zero if it varies.
+     */
+    private int width(JasonLib.Serializer.Reader<ByteBuffer, ?> as) {
+        if (as == _booleanReader) return 1;
+        if (as == _integerReader || as == _floatReader) return 4;
+        if (as == _longReader || as == _doubleReader) return 8;
+        return 0;
+    }
+
+    private static void advance(ByteBuffer b, long bytes) {
+        if (bytes > b.remaining()) throw new BufferUnderflowException();
+        b.position(b.position() + (int)bytes);
+    }
+
+    private void skipValue(ByteBuffer b, JasonLib.Serializer.Reader<ByteBuffer, ?> as) throws IOException {
+        int width = width(as);
+        if (width > 0) advance(b, width);
+        else if (as == _stringReader) advance(b, Math.max(b.getInt(), 0));
+        else as.read(b);
+    }
+
+    @Override
+    public void skipPrimitive(ByteBuffer context, String field, JasonLib.Serializer.Reader<ByteBuffer, ?> as) throws IOException {
+        skipValue(context, as);
+    }
+
+    @Override
+    public void skipOptional(ByteBuffer context, String field, JasonLib.Serializer.Reader<ByteBuffer, ?> of) throws IOException {
+        if (_booleanReader.readBoolean(context)) skipValue(context, of);
+    }
+
+    @Override
+    public void skipList(ByteBuffer context, String field, JasonLib.Serializer.Reader<ByteBuffer, ?> of) throws IOException {
+        int len = readCount(context);
+        int width = width(of);
+        if (width > 0) {
+            advance(context, (long)len * width);
+        } else {
+            for (int i = 0; i < len; ++i) skipValue(context, of);
+        }
+    }
+
+    @Override
+    public void skipMap(ByteBuffer context, String field, JasonLib.Serializer.Reader<ByteBuffer, ?> rkey, JasonLib.Serializer.Reader<ByteBuffer, ?> rvalue) throws IOException {
+        int len = readCount(context);
+        for (int i = 0; i < len; ++i) {
+            skipValue(context, rkey);
+            skipValue(context, rvalue);
+        }
+    }
+
+    @Override
+    public JasonLib.Serializer.BooleanWriter<Output> booleanWriter() throws IOException {
+        return _booleanWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.IntWriter<Output> integerWriter() throws IOException {
+        return _integerWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.LongWriter<Output> longWriter() throws IOException {
+        return _longWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.FloatWriter<Output> floatWriter() throws IOException {
+        return _floatWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.DoubleWriter<Output> doubleWriter() throws IOException {
+        return _doubleWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.Writer<Output, String> stringWriter() throws IOException {
+        return _stringWriter;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends JasonLib.Serializable> JasonLib.Serializer.Writer<Output, T> serializableWriter() throws IOException {
+        return (JasonLib.Serializer.Writer<Output, T>)_serializableWriter;
+    }
+
+    @Override
+    public Output writeBoolean(Output context, String field, JasonLib.Serializer.BooleanWriter<Output> as, boolean value) throws IOException {
+        return as.writeBoolean(context, value);
+    }
+
+    @Override
+    public Output writeInt(Output context, String field, JasonLib.Serializer.IntWriter<Output> as, int value) throws IOException {
+        return as.writeInt(context, value);
+    }
+
+    @Override
+    public Output writeLong(Output context, String field, JasonLib.Serializer.LongWriter<Output> as, long value) throws IOException {
+        return as.writeLong(context, value);
+    }
+
+    @Override
+    public Output writeFloat(Output context, String field, JasonLib.Serializer.FloatWriter<Output> as, float value) throws IOException {
+        return as.writeFloat(context, value);
+    }
+
+    @Override
+    public Output writeDouble(Output context, String field, JasonLib.Serializer.DoubleWriter<Output> as, double value) throws IOException {
+        return as.writeDouble(context, value);
+    }
+
+    @Override
+    public <T> Output writePrimitive(Output context, String field, JasonLib.Serializer.Writer<Output, T> as, T value) throws IOException {
+        return as.write(context, value);
+    }
+
+    @Override
+    public <T> Output writeOptional(Output context, String field, JasonLib.Serializer.Writer<Output, T> of, Optional<T> value) throws IOException {
+        _booleanWriter.writeBoolean(context, value.isPresent());
+        if (value.isPresent()) of.write(context, value.get());
+        return context;
+    }
+
+    @Override
+    public <T> Output writeList(Output context, String field, JasonLib.Serializer.Writer<Output, T> of, List<T> value) throws IOException {
+        _integerWriter.writeInt(context, value.size());
+        for (T t : value) of.write(context, t);
+        return context;
+    }
+
+    @Override
+    public <T, U> Output writeMap(Output context, String field, JasonLib.Serializer.Writer<Output, T> wkey, JasonLib.Serializer.Writer<Output, U> wvalue, Map<T, U> value) throws IOException {
+        _integerWriter.writeInt(context, value.size());
+        for (Map.Entry<T, U> e : value.entrySet()) {
+            wkey.write(context, e.getKey());
+            wvalue.write(context, e.getValue());
+        }
+        return context;
+    }
+
+    @Override
+    public Output writeInts(Output context, String field, JasonLib.Serializer.IntWriter<Output> of, int[] value) throws IOException {
+        if (of == _integerWriter) {
+            ByteBuffer b = context.ensure(4 + value.length * 4);
+            b.putInt(value.length);
+            b.asIntBuffer().put(value);
+            b.position(b.position() + value.length * 4);
+        } else {
+            _integerWriter.writeInt(context, value.length);
+            for (int v : value) of.writeInt(context, v);
+        }
+        return context;
+    }
+
+    @Override
+    public Output writeLongs(Output context, String field, JasonLib.Serializer.LongWriter<Output> of, long[] value) throws IOException {
+        if (of == _longWriter) {
+            ByteBuffer b = context.ensure(4 + value.length * 8);
+            b.putInt(value.length);
+            b.asLongBuffer().put(value);
+            b.position(b.position() + value.length * 8);
+        } else {
+            _integerWriter.writeInt(context, value.length);
+            for (long v : value) of.writeLong(context, v);
+        }
+        return context;
+    }
+
+    @Override
+    public Output writeFloats(Output context, String field, JasonLib.Serializer.FloatWriter<Output> of, float[] value) throws IOException {
+        if (of == _floatWriter) {
+            ByteBuffer b = context.ensure(4 + value.length * 4);
+            b.putInt(value.length);
+            b.asFloatBuffer().put(value);
+            b.position(b.position() + value.length * 4);
+        } else {
+            _integerWriter.writeInt(context, value.length);
+            for (float v : value) of.writeFloat(context, v);
+        }
+        return context;
+    }
+
+    @Override
+    public Output writeDoubles(Output context, String field, JasonLib.Serializer.DoubleWriter<Output> of, double[] value) throws IOException {
+        if (of == _doubleWriter) {
+            ByteBuffer b = context.ensure(4 + value.length * 8);
+            b.putInt(value.length);
+            b.asDoubleBuffer().put(value);
+            b.position(b.position() + value.length * 8);
+        } else {
+            _integerWriter.writeInt(context, value.length);
+            for (double v : value) of.writeDouble(context, v);
+        }
+        return context;
+    }
+}
@@ -0,0 +1,700 @@
+package com.github.mortimersmith.jason.binary;
+
+import com.github.mortimersmith.jason.JasonLib;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Binary serializer that tags every member with its field id, for payloads that outlive a spec.
+ *
+ * An object is a run of fields, each a varint key ({@code id << 2 | wire type}) and a value.
+ * The wire types are VARINT (booleans, and zigzag-encoded ints and longs), FIXED32 (floats),
+ * FIXED64 (doubles), both little-endian, and LEN, a varint byte count and then the bytes, used for
+ * strings, nested objects, lists and maps. A list is a count and its elements, a map a count and
+ * alternating keys and values, each written as a field value without a key. Absent optionals and
+ * null members are left out.
+ *
+ * Reading indexes an object's fields by id in one pass, stepping over each value by its wire type
+ * alone, so fields may come in any order and unknown ids cost nothing. Members missing from the
+ * payload read as zero, false, null or empty. Members can therefore be added, removed and
+ * reordered between versions of a spec, as long as an id is never reused for another type.
+ */
+public class Tagged implements JasonLib.Serializer<Tagged.Fields, Tagged.Output, ByteBuffer, Tagged.Output>
+{
+    public static final Tagged INSTANCE = new Tagged();
+
+    private static final int VARINT = 0;
+    private static final int FIXED32 = 1;
+    private static final int FIXED64 = 2;
+    private static final int LEN = 3;
+
+    private final JasonLib.CollectionFactory _collections;
+    private final JasonLib.StringCache _strings;
+    private final JasonLib.ReaderCache<ByteBuffer> _readers = new JasonLib.ReaderCache<>();
+    private final JasonLib.Serializer.BooleanReader<ByteBuffer> _booleanReader = (b) -> readVarint(b) != 0;
+    private final JasonLib.Serializer.IntReader<ByteBuffer> _integerReader = (b) -> (int)unzigzag(readVarint(b));
+    private final JasonLib.Serializer.LongReader<ByteBuffer> _longReader = (b) -> unzigzag(readVarint(b));
+    private final JasonLib.Serializer.FloatReader<ByteBuffer> _floatReader = (b) -> Float.intBitsToFloat(little(b) ? b.getInt() : Integer.reverseBytes(b.getInt()));
+    private final JasonLib.Serializer.DoubleReader<ByteBuffer> _doubleReader = (b) -> Double.longBitsToDouble(little(b) ? b.getLong() : Long.reverseBytes(b.getLong()));
+    private final JasonLib.Serializer.Reader<ByteBuffer, String> _stringReader = (b) -> readString(b);
+    private final JasonLib.Serializer.BooleanWriter<Output> _booleanWriter = (o, value) -> putVarint(o, value ? 1 : 0);
+    private final JasonLib.Serializer.IntWriter<Output> _integerWriter = (o, value) -> putVarint(o, zigzag(value));
+    private final JasonLib.Serializer.LongWriter<Output> _longWriter = (o, value) -> putVarint(o, zigzag(value));
+    private final JasonLib.Serializer.FloatWriter<Output> _floatWriter = (o, value) -> { ByteBuffer b = o.ensure(4); int bits = Float.floatToIntBits(value); b.putInt(little(b) ? bits : Integer.reverseBytes(bits)); return o; };
+    private final JasonLib.Serializer.DoubleWriter<Output> _doubleWriter = (o, value) -> { ByteBuffer b = o.ensure(8); long bits = Double.doubleToLongBits(value); b.putLong(little(b) ? bits : Long.reverseBytes(bits)); return o; };
+    private final JasonLib.Serializer.Writer<Output, String> _stringWriter = (o, value) -> { Buffers.Output.putUtf8(o.ensure(3 * value.length()), value); return o; };
+    private final JasonLib.Serializer.Writer<Output, JasonLib.Serializable> _serializableWriter = (o, value) -> {
+        JasonLib.Schema schema = o._schema;
+        int next = o._next;
+        value.serialize(Tagged.this, o);
+        o._schema = schema;
+        o._next = next;
+        return o;
+    };
+
+    public Tagged() {
+        this(JasonLib.CollectionFactory.DEFAULT);
+    }
+
+    /**
+     * A serializer that reads lists and maps into collections made by {@code collections}.
+     */
+    public Tagged(JasonLib.CollectionFactory collections) {
+        this(collections, null);
+    }
+
+    /**
+     * As above, also looking up the strings it reads in {@code strings}, if not null.
+     */
+    public Tagged(JasonLib.CollectionFactory collections, JasonLib.StringCache strings) {
+        _collections = collections;
+        _strings = strings;
+    }
+
+    /**
+     * Serializes into a new heap buffer, returned ready for reading.
+     */
+    public static <T extends JasonLib.Serializable> ByteBuffer wrap(T t) throws IOException
+    {
+        Output out = Output.heap(256);
+        t.serialize(INSTANCE, out);
+        return out.flip();
+    }
+
+    /**
+     * Serializes into a caller-owned buffer, as {@link Buffers#wrap(JasonLib.Serializable, ByteBuffer)}.
+     */
+    public static <T extends JasonLib.Serializable> ByteBuffer wrap(T t, ByteBuffer out) throws IOException
+    {
+        return t.serialize(INSTANCE, new Output(out)).buffer();
+    }
+
+    public static <T extends JasonLib.Serializable> Output wrap(T t, Output out) throws IOException
+    {
+        return t.serialize(INSTANCE, out);
+    }
+
+    /**
+     * Deserializes the object between the buffer's position and limit, leaving it positioned at
+     * the limit.
+     */
+    public static <T extends JasonLib.Serializable> T unwrap(ByteBuffer in, JasonLib.From<T> from) throws IOException
+    {
+        int limit = in.limit();
+        try {
+            return from.get(INSTANCE, in);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("truncated or malformed buffer", e);
+        } finally {
+            in.limit(limit);
+            in.position(limit);
+        }
+    }
+
+    /**
+     * A growable write position that also tracks the schema of the object being written.
+     */
+    public static class Output extends Buffers.Output
+    {
+        private JasonLib.Schema _schema;
+        private int _next;
+
+        public Output(ByteBuffer buffer) {
+            super(buffer);
+        }
+
+        public static Output heap(int capacity) {
+            return new Output(ByteBuffer.allocate(capacity));
+        }
+
+        public static Output direct(int capacity) {
+            return new Output(ByteBuffer.allocateDirect(capacity));
+        }
+
+        private int id(String field) throws IOException {
+            JasonLib.Schema schema = _schema;
+            if (schema == null) throw new IOException("no schema for field: " + field);
+            int i = schema.indexOf(field, _next);
+            if (i < 0) throw new IOException("unknown field: " + field);
+            _next = i + 1;
+            return schema.id(i);
+        }
+    }
+
+    /**
+     * The fields of one object being read, indexed by member.
+     */
+    public static class Fields
+    {
+        private final ByteBuffer _buffer;
+        private final JasonLib.Schema _schema;
+        private final int _end;
+        private final long[] _at;
+        private int _next;
+
+        private Fields(ByteBuffer buffer, JasonLib.Schema schema) throws IOException {
+            _buffer = buffer;
+            _schema = schema;
+            _end = buffer.limit();
+            _at = new long[schema.size()];
+            Arrays.fill(_at, -1);
+            while (buffer.hasRemaining()) {
+                long key = readVarint(buffer);
+                int wire = (int)key & 3;
+                long id = key >>> 2;
+                int at = buffer.position();
+                skip(buffer, wire);
+                int i = id <= Integer.MAX_VALUE ? schema.indexOfId((int)id) : -1;
+                if (i >= 0) _at[i] = (long)at << 2 | wire;
+            }
+        }
+
+        /**
+         * Positions the buffer at the value of {@code field}, returning false if it is absent.
+         */
+        private boolean seek(String field, int wire) throws IOException {
+            int i = _schema.indexOf(field, _next);
+            if (i < 0) throw new IOException("unknown field: " + field);
+            _next = i + 1;
+            long at = _at[i];
+            if (at < 0) return false;
+            if ((at & 3) != wire) throw new IOException("field " + field + ": expected wire type " + wire + ", found " + (at & 3));
+            _buffer.limit(_end);
+            _buffer.position((int)(at >>> 2));
+            return true;
+        }
+    }
+
+    private static boolean little(ByteBuffer b) {
+        return b.order() == ByteOrder.LITTLE_ENDIAN;
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static long readVarint(ByteBuffer b) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte x = b.get();
+            v |= (long)(x & 0x7f) << shift;
+            if (x >= 0) return v;
+        }
+        throw new IOException("malformed varint");
+    }
+
+    private static int readLength(ByteBuffer b) throws IOException {
+        long len = readVarint(b);
+        if (len < 0 || len > b.remaining()) throw new IOException("invalid length: " + len);
+        return (int)len;
+    }
+
+    private static Output putVarint(Output o, long v) {
+        ByteBuffer b = o.ensure(10);
+        while ((v & ~0x7fL) != 0) {
+            b.put((byte)((v & 0x7f) | 0x80));
+            v >>>= 7;
+        }
+        b.put((byte)v);
+        return o;
+    }
+
+    private static void skip(ByteBuffer b, int wire) throws IOException {
+        switch (wire) {
+            case VARINT: readVarint(b); break;
+            case FIXED32: advance(b, 4); break;
+            case FIXED64: advance(b, 8); break;
+            default: advance(b, readLength(b)); break;
+        }
+    }
+
+    private static void advance(ByteBuffer b, int bytes) {
+        if (bytes > b.remaining()) throw new BufferUnderflowException();
+        b.position(b.position() + bytes);
+    }
+
+    private String readString(ByteBuffer b) {
+        int len = b.remaining();
+        String s;
+        if (_strings != null) {
+            s = _strings.decode(b, b.position(), len);
+            b.position(b.limit());
+        } else if (b.hasArray()) {
+            s = new String(b.array(), b.arrayOffset() + b.position(), len, StandardCharsets.UTF_8);
+            b.position(b.limit());
+        } else {
+            byte[] bytes = new byte[len];
+            b.get(bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return s;
+    }
+
+    private int wire(Object readerOrWriter) {
+        if (readerOrWriter == _booleanReader || readerOrWriter == _integerReader || readerOrWriter == _longReader) return VARINT;
+        if (readerOrWriter == _booleanWriter || readerOrWriter == _integerWriter || readerOrWriter == _longWriter) return VARINT;
+        if (readerOrWriter == _floatReader || readerOrWriter == _floatWriter) return FIXED32;
+        if (readerOrWriter == _doubleReader || readerOrWriter == _doubleWriter) return FIXED64;
+        return LEN;
+    }
+
+    /**
+     * Reads one value; a LEN value is read with the buffer limited to its bytes.
+     */
+    private static <T> T readValue(ByteBuffer b, int wire, JasonLib.Serializer.Reader<ByteBuffer, T> as) throws IOException {
+        if (wire != LEN) return as.read(b);
+        int len = readLength(b);
+        int end = b.position() + len;
+        int limit = b.limit();
+        b.limit(end);
+        T t = as.read(b);
+        b.limit(limit);
+        b.position(end);
+        return t;
+    }
+
+    private static <T> void writeValue(Output o, int wire, JasonLib.Serializer.Writer<Output, T> as, T value) throws IOException {
+        if (wire != LEN) {
+            as.write(o, value);
+            return;
+        }
+        int start = beginLength(o);
+        as.write(o, value);
+        endLength(o, start);
+    }
+
+    /**
+     * Reserves one byte for a length, which {@link #endLength} fills in once the value is written,
+     * moving the value along if the length needs more than one byte.
+     */
+    private static int beginLength(Output o) {
+        ByteBuffer b = o.ensure(1);
+        int start = b.position();
+        b.put((byte)0);
+        return start;
+    }
+
+    private static void endLength(Output o, int start) {
+        ByteBuffer b = o.buffer();
+        int end = b.position();
+        int len = end - start - 1;
+        int size = 1;
+        for (int v = len >>> 7; v != 0; v >>>= 7) ++size;
+        if (size > 1) {
+            b = o.ensure(size - 1);
+            if (b.hasArray()) {
+                System.arraycopy(b.array(), b.arrayOffset() + start + 1, b.array(), b.arrayOffset() + start + size, len);
+            } else {
+                for (int i = end - 1; i > start; --i) b.put(i + size - 1, b.get(i));
+            }
+            b.position(end + size - 1);
+        }
+        int at = start;
+        int v = len;
+        while ((v & ~0x7f) != 0) {
+            b.put(at++, (byte)((v & 0x7f) | 0x80));
+            v >>>= 7;
+        }
+        b.put(at, (byte)v);
+    }
+
+    /**
+     * Seeks a list or map field and limits the buffer to its bytes. Returns its element count, or
+     * -1 if the field is absent.
+     */
+    private static int count(Fields context, String field) throws IOException {
+        if (!context.seek(field, LEN)) return -1;
+        ByteBuffer b = context._buffer;
+        int bytes = readLength(b);
+        b.limit(b.position() + bytes);
+        long len = readVarint(b);
+        if (len < 0 || len > b.remaining()) throw new IOException("invalid length: " + len);
+        return (int)len;
+    }
+
+    private void tag(Output o, String field, int wire) throws IOException {
+        putVarint(o, (long)o.id(field) << 2 | wire);
+    }
+
+    @Override
+    public Fields childContext(ByteBuffer context) throws IOException {
+        throw new IOException("tagged objects need a schema");
+    }
+
+    @Override
+    public Fields childContext(ByteBuffer context, JasonLib.Schema schema) throws IOException {
+        return new Fields(context, schema);
+    }
+
+    @Override
+    public Output writeContext(Output context, JasonLib.Schema schema) {
+        context._schema = schema;
+        context._next = 0;
+        return context;
+    }
+
+    @Override
+    public boolean randomAccess() {
+        return true;
+    }
+
+    @Override
+    public JasonLib.Serializer.BooleanReader<ByteBuffer> booleanReader() throws IOException {
+        return _booleanReader;
+    }
+
+    @Override
+    public JasonLib.Serializer.IntReader<ByteBuffer> integerReader() throws IOException {
+        return _integerReader;
+    }
+
+    @Override
+    public JasonLib.Serializer.LongReader<ByteBuffer> longReader() throws IOException {
+        return _longReader;
+    }
+
+    @Override
+    public JasonLib.Serializer.FloatReader<ByteBuffer> floatReader() throws IOException {
+        return _floatReader;
+    }
+
+    @Override
+    public JasonLib.Serializer.DoubleReader<ByteBuffer> doubleReader() throws IOException {
+        return _doubleReader;
+    }
+
+    @Override
+    public JasonLib.Serializer.Reader<ByteBuffer, String> stringReader() throws IOException {
+        return _stringReader;
+    }
+
+    @Override
+    public <T extends JasonLib.Serializable> JasonLib.Serializer.Reader<ByteBuffer, T> serializableReader(Class<T> type, JasonLib.Serializer.ReaderFactory<T> factory) throws IOException {
+        return _readers.get(this, type, factory);
+    }
+
+    @Override
+    public <T> JasonLib.Serializer.Reader<ByteBuffer, T> cachedReader(Object key, JasonLib.Serializer.ReaderFactory<T> factory) throws IOException {
+        return _readers.get(this, key, factory);
+    }
+
+    @Override
+    public boolean readBoolean(Fields context, String field, JasonLib.Serializer.BooleanReader<ByteBuffer> as) throws IOException {
+        return context.seek(field, wire(as)) && as.readBoolean(context._buffer);
+    }
+
+    @Override
+    public int readInt(Fields context, String field, JasonLib.Serializer.IntReader<ByteBuffer> as) throws IOException {
+        return context.seek(field, wire(as)) ? as.readInt(context._buffer) : 0;
+    }
+
+    @Override
+    public long readLong(Fields context, String field, JasonLib.Serializer.LongReader<ByteBuffer> as) throws IOException {
+        return context.seek(field, wire(as)) ? as.readLong(context._buffer) : 0;
+    }
+
+    @Override
+    public float readFloat(Fields context, String field, JasonLib.Serializer.FloatReader<ByteBuffer> as) throws IOException {
+        return context.seek(field, wire(as)) ? as.readFloat(context._buffer) : 0;
+    }
+
+    @Override
+    public double readDouble(Fields context, String field, JasonLib.Serializer.DoubleReader<ByteBuffer> as) throws IOException {
+        return context.seek(field, wire(as)) ? as.readDouble(context._buffer) : 0;
+    }
+
+    @Override
+    public <T> T readPrimitive(Fields context, String field, JasonLib.Serializer.Reader<ByteBuffer, T> as) throws IOException {
+        int wire = wire(as);
+        return context.seek(field, wire) ? readValue(context._buffer, wire, as) : null;
+    }
+
+    @Override
+    public <T> Optional<T> readOptional(Fields context, String field, JasonLib.Serializer.Reader<ByteBuffer, T> of) throws IOException {
+        int wire = wire(of);
+        return context.seek(field, wire)
+            ? Optional.of(readValue(context._buffer, wire, of))
+            : Optional.empty()
+            ;
+    }
+
+    @Override
+    public <T> List<T> readList(Fields context, String field, JasonLib.Serializer.Reader<ByteBuffer, T> of, List<T> into) throws IOException {
+        int len = count(context, field);
+        if (len < 0) return _collections.list(0, into).build();
+        ByteBuffer b = context._buffer;
+        int wire = wire(of);
+        JasonLib.CollectionFactory.ListBuilder<T> l = _collections.list(len, into);
+        for (int i = 0; i < len; ++i) l.add(readValue(b, wire, of));
+        return l.build();
+    }
+
+    @Override
+    public <T, U> Map<T, U> readMap(Fields context, String field, JasonLib.Serializer.Reader<ByteBuffer, T> rkey, JasonLib.Serializer.Reader<ByteBuffer, U> rvalue, Map<T, U> into) throws IOException {
+        int len = count(context, field);
+        if (len < 0) return _collections.map(0, into).build();
+        ByteBuffer b = context._buffer;
+        int kwire = wire(rkey);
+        int vwire = wire(rvalue);
+        JasonLib.CollectionFactory.MapBuilder<T, U> m = _collections.map(len, into);
+        for (int i = 0; i < len; ++i) m.put(readValue(b, kwire, rkey), readValue(b, vwire, rvalue));
+        return m.build();
+    }
+
+    @Override
+    public int[] readInts(Fields context, String field, JasonLib.Serializer.IntReader<ByteBuffer> of) throws IOException {
+        int len = count(context, field);
+        if (len < 0) return new int[0];
+        ByteBuffer b = context._buffer;
+        int[] r = new int[len];
+        for (int i = 0; i < len; ++i) r[i] = of.readInt(b);
+        return r;
+    }
+
+    @Override
+    public long[] readLongs(Fields context, String field, JasonLib.Serializer.LongReader<ByteBuffer> of) throws IOException {
+        int len = count(context, field);
+        if (len < 0) return new long[0];
+        ByteBuffer b = context._buffer;
+        long[] r = new long[len];
+        for (int i = 0; i < len; ++i) r[i] = of.readLong(b);
+        return r;
+    }
+
+    @Override
+    public float[] readFloats(Fields context, String field, JasonLib.Serializer.FloatReader<ByteBuffer> of) throws IOException {
+        int len = count(context, field);
+        if (len < 0) return new float[0];
+        ByteBuffer b = context._buffer;
+        if ((long)len * 4 > b.remaining()) throw new BufferUnderflowException();
+        float[] r = new float[len];
+        if (of == _floatReader) {
+            b.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(r);
+            b.position(b.position() + len * 4);
+        } else {
+            for (int i = 0; i < len; ++i) r[i] = of.readFloat(b);
+        }
+        return r;
+    }
+
+    @Override
+    public double[] readDoubles(Fields context, String field, JasonLib.Serializer.DoubleReader<ByteBuffer> of) throws IOException {
+        int len = count(context, field);
+        if (len < 0) return new double[0];
+        ByteBuffer b = context._buffer;
+        if ((long)len * 8 > b.remaining()) throw new BufferUnderflowException();
+        double[] r = new double[len];
+        if (of == _doubleReader) {
+            b.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(r);
+            b.position(b.position() + len * 8);
+        } else {
+            for (int i = 0; i < len; ++i) r[i] = of.readDouble(b);
+        }
+        return r;
+    }
+
+    @Override
+    public void skipPrimitive(Fields context, String field, JasonLib.Serializer.Reader<ByteBuffer, ?> as) {
+    }
+
+    @Override
+    public void skipOptional(Fields context, String field, JasonLib.Serializer.Reader<ByteBuffer, ?> of) {
+    }
+
+    @Override
+    public void skipList(Fields context, String field, JasonLib.Serializer.Reader<ByteBuffer, ?> of) {
+    }
+
+    @Override
+    public void skipMap(Fields context, String field, JasonLib.Serializer.Reader<ByteBuffer, ?> rkey, JasonLib.Serializer.Reader<ByteBuffer, ?> rvalue) {
+    }
+
+    @Override
+    public JasonLib.Serializer.BooleanWriter<Output> booleanWriter() throws IOException {
+        return _booleanWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.IntWriter<Output> integerWriter() throws IOException {
+        return _integerWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.LongWriter<Output> longWriter() throws IOException {
+        return _longWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.FloatWriter<Output> floatWriter() throws IOException {
+        return _floatWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.DoubleWriter<Output> doubleWriter() throws IOException {
+        return _doubleWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.Writer<Output, String> stringWriter() throws IOException {
+        return _stringWriter;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends JasonLib.Serializable> JasonLib.Serializer.Writer<Output, T> serializableWriter() throws IOException {
+        return (JasonLib.Serializer.Writer<Output, T>)_serializableWriter;
+    }
+
+    @Override
+    public Output writeBoolean(Output context, String field, JasonLib.Serializer.BooleanWriter<Output> as, boolean value) throws IOException {
+        tag(context, field, wire(as));
+        return as.writeBoolean(context, value);
+    }
+
+    @Override
+    public Output writeInt(Output context, String field, JasonLib.Serializer.IntWriter<Output> as, int value) throws IOException {
+        tag(context, field, wire(as));
+        return as.writeInt(context, value);
+    }
+
+    @Override
+    public Output writeLong(Output context, String field, JasonLib.Serializer.LongWriter<Output> as, long value) throws IOException {
+        tag(context, field, wire(as));
+        return as.writeLong(context, value);
+    }
+
+    @Override
+    public Output writeFloat(Output context, String field, JasonLib.Serializer.FloatWriter<Output> as, float value) throws IOException {
+        tag(context, field, wire(as));
+        return as.writeFloat(context, value);
+    }
+
+    @Override
+    public Output writeDouble(Output context, String field, JasonLib.Serializer.DoubleWriter<Output> as, double value) throws IOException {
+        tag(context, field, wire(as));
+        return as.writeDouble(context, value);
+    }
+
+    @Override
+    public <T> Output writePrimitive(Output context, String field, JasonLib.Serializer.Writer<Output, T> as, T value) throws IOException {
+        if (value == null) return context;
+        int wire = wire(as);
+        tag(context, field, wire);
+        writeValue(context, wire, as, value);
+        return context;
+    }
+
+    @Override
+    public <T> Output writeOptional(Output context, String field, JasonLib.Serializer.Writer<Output, T> of, Optional<T> value) throws IOException {
+        return value.isPresent() ? writePrimitive(context, field, of, value.get()) : context;
+    }
+
+    @Override
+    public <T> Output writeList(Output context, String field, JasonLib.Serializer.Writer<Output, T> of, List<T> value) throws IOException {
+        tag(context, field, LEN);
+        int start = beginLength(context);
+        putVarint(context, value.size());
+        int wire = wire(of);
+        for (T t : value) writeValue(context, wire, of, t);
+        endLength(context, start);
+        return context;
+    }
+
+    @Override
+    public <T, U> Output writeMap(Output context, String field, JasonLib.Serializer.Writer<Output, T> wkey, JasonLib.Serializer.Writer<Output, U> wvalue, Map<T, U> value) throws IOException {
+        tag(context, field, LEN);
+        int start = beginLength(context);
+        putVarint(context, value.size());
+        int kwire = wire(wkey);
+        int vwire = wire(wvalue);
+        for (Map.Entry<T, U> e : value.entrySet()) {
+            writeValue(context, kwire, wkey, e.getKey());
+            writeValue(context, vwire, wvalue, e.getValue());
+        }
+        endLength(context, start);
+        return context;
+    }
+
+    @Override
+    public Output writeInts(Output context, String field, JasonLib.Serializer.IntWriter<Output> of, int[] value) throws IOException {
+        tag(context, field, LEN);
+        int start = beginLength(context);
+        putVarint(context, value.length);
+        for (int v : value) of.writeInt(context, v);
+        endLength(context, start);
+        return context;
+    }
+
+    @Override
+    public Output writeLongs(Output context, String field, JasonLib.Serializer.LongWriter<Output> of, long[] value) throws IOException {
+        tag(context, field, LEN);
+        int start = beginLength(context);
+        putVarint(context, value.length);
+        for (long v : value) of.writeLong(context, v);
+        endLength(context, start);
+        return context;
+    }
+
+    @Override
+    public Output writeFloats(Output context, String field, JasonLib.Serializer.FloatWriter<Output> of, float[] value) throws IOException {
+        tag(context, field, LEN);
+        int start = beginLength(context);
+        putVarint(context, value.length);
+        if (of == _floatWriter) {
+            ByteBuffer b = context.ensure(value.length * 4);
+            b.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().put(value);
+            b.position(b.position() + value.length * 4);
+        } else {
+            for (float v : value) of.writeFloat(context, v);
+        }
+        endLength(context, start);
+        return context;
+    }
+
+    @Override
+    public Output writeDoubles(Output context, String field, JasonLib.Serializer.DoubleWriter<Output> of, double[] value) throws IOException {
+        tag(context, field, LEN);
+        int start = beginLength(context);
+        putVarint(context, value.length);
+        if (of == _doubleWriter) {
+            ByteBuffer b = context.ensure(value.length * 8);
+            b.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().put(value);
+            b.position(b.position() + value.length * 8);
+        } else {
+            for (double v : value) of.writeDouble(context, v);
+        }
+        endLength(context, start);
+        return context;
+    }
+}
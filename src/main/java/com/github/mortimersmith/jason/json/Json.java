@@ -7,16 +7,60 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
-public class Json implements JasonLib.Serializer<JsonObject, JsonObject, JsonElement, JsonElement>
+/**
+ * Reads and writes Gson trees. Objects are read through {@link Fields}, which follows the order
+ * of their members rather than looking each one up by name.
+ */
+public class Json implements JasonLib.Serializer<Json.Fields, JsonObject, JsonElement, JsonElement>
 {
     public static final Json INSTANCE = new Json();
 
+    private final JasonLib.CollectionFactory _collections;
+    private final JasonLib.StringCache _strings;
+    private final JasonLib.ReaderCache<JsonElement> _readers = new JasonLib.ReaderCache<>();
+    private final JasonLib.Serializer.BooleanReader<JsonElement> _booleanReader = (json) -> json.getAsBoolean();
+    private final JasonLib.Serializer.IntReader<JsonElement> _integerReader = (json) -> json.getAsInt();
+    private final JasonLib.Serializer.LongReader<JsonElement> _longReader = (json) -> json.getAsLong();
+    private final JasonLib.Serializer.FloatReader<JsonElement> _floatReader = (json) -> json.getAsFloat();
+    private final JasonLib.Serializer.DoubleReader<JsonElement> _doubleReader = (json) -> json.getAsDouble();
+    private final JasonLib.Serializer.Reader<JsonElement, String> _stringReader = (json) -> string(json.getAsString());
+    private final JasonLib.Serializer.BooleanWriter<JsonElement> _booleanWriter = (json, value) -> new JsonPrimitive(value);
+    private final JasonLib.Serializer.IntWriter<JsonElement> _integerWriter = (json, value) -> new JsonPrimitive(value);
+    private final JasonLib.Serializer.LongWriter<JsonElement> _longWriter = (json, value) -> new JsonPrimitive(value);
+    private final JasonLib.Serializer.FloatWriter<JsonElement> _floatWriter = (json, value) -> new JsonPrimitive(value);
+    private final JasonLib.Serializer.DoubleWriter<JsonElement> _doubleWriter = (json, value) -> new JsonPrimitive(value);
+    private final JasonLib.Serializer.Writer<JsonElement, String> _stringWriter = (json, value) -> new JsonPrimitive(value);
+    private final JasonLib.Serializer.Writer<JsonElement, JasonLib.Serializable> _serializableWriter = (json, value) -> value.serialize(Json.this, new JsonObject());
+
+    public Json() {
+        this(JasonLib.CollectionFactory.DEFAULT);
+    }
+
+    /**
+     * A serializer that reads lists and maps into collections made by {@code collections}.
+     */
+    public Json(JasonLib.CollectionFactory collections) {
+        this(collections, null);
+    }
+
+    /**
+     * As above, also looking up the strings it reads in {@code strings}, if not null.
+     */
+    public Json(JasonLib.CollectionFactory collections, JasonLib.StringCache strings) {
+        _collections = collections;
+        _strings = strings;
+    }
+
+    private String string(String s) {
+        return _strings == null ? s : _strings.intern(s);
+    }
+
     public static <T extends JasonLib.Serializable> JsonObject wrap(T t) throws IOException
     {
         return t.serialize(INSTANCE, new JsonObject());
@@ -27,106 +71,252 @@ public class Json implements JasonLib.Serializer<JsonObject, JsonObject, JsonEle
         return from.get(INSTANCE, json);
     }
 
+    /**
+     * The members of an object being read. Objects are usually read in the order they were
+     * written, so each field is first matched against the next member of the object, and only
+     * looked up by name when that is not it.
+     */
+    public static final class Fields
+    {
+        private final JsonObject _object;
+        private final Iterator<Map.Entry<String, JsonElement>> _entries;
+        private Map.Entry<String, JsonElement> _next;
+
+        private Fields(JsonObject object) {
+            _object = object;
+            _entries = object.entrySet().iterator();
+            _next = _entries.hasNext() ? _entries.next() : null;
+        }
+
+        private JsonElement get(String field) {
+            Map.Entry<String, JsonElement> next = _next;
+            if (next != null && next.getKey().equals(field)) {
+                _next = _entries.hasNext() ? _entries.next() : null;
+                return next.getValue();
+            }
+            return _object.get(field);
+        }
+    }
+
     @Override
-    public JsonObject childContext(JsonElement context) {
-        return context.getAsJsonObject();
+    public Fields childContext(JsonElement context) {
+        return new Fields(context.getAsJsonObject());
     }
 
     @Override
-    public JasonLib.Serializer.Reader<JsonElement, Boolean> booleanReader() throws IOException {
-        return (json) -> json.getAsBoolean();
+    public boolean randomAccess() {
+        return true;
     }
 
     @Override
-    public JasonLib.Serializer.Reader<JsonElement, Integer> integerReader() throws IOException {
-        return (json) -> json.getAsInt();
+    public JasonLib.Serializer.BooleanReader<JsonElement> booleanReader() throws IOException {
+        return _booleanReader;
     }
 
     @Override
-    public JasonLib.Serializer.Reader<JsonElement, Long> longReader() throws IOException {
-        return (json) -> json.getAsLong();
+    public JasonLib.Serializer.IntReader<JsonElement> integerReader() throws IOException {
+        return _integerReader;
     }
 
     @Override
-    public JasonLib.Serializer.Reader<JsonElement, Float> floatReader() throws IOException {
-        return (json) -> json.getAsFloat();
+    public JasonLib.Serializer.LongReader<JsonElement> longReader() throws IOException {
+        return _longReader;
     }
 
     @Override
-    public JasonLib.Serializer.Reader<JsonElement, Double> doubleReader() throws IOException {
-        return (json) -> json.getAsDouble();
+    public JasonLib.Serializer.FloatReader<JsonElement> floatReader() throws IOException {
+        return _floatReader;
+    }
+
+    @Override
+    public JasonLib.Serializer.DoubleReader<JsonElement> doubleReader() throws IOException {
+        return _doubleReader;
     }
 
     @Override
     public JasonLib.Serializer.Reader<JsonElement, String> stringReader() throws IOException {
-        return (json) -> json.getAsString();
+        return _stringReader;
+    }
+
+    @Override
+    public <T extends JasonLib.Serializable> JasonLib.Serializer.Reader<JsonElement, T> serializableReader(Class<T> type, JasonLib.Serializer.ReaderFactory<T> factory) throws IOException {
+        return _readers.get(this, type, factory);
+    }
+
+    @Override
+    public <T> JasonLib.Serializer.Reader<JsonElement, T> cachedReader(Object key, JasonLib.Serializer.ReaderFactory<T> factory) throws IOException {
+        return _readers.get(this, key, factory);
+    }
+
+    @Override
+    public boolean readBoolean(Fields context, String field, JasonLib.Serializer.BooleanReader<JsonElement> as) throws IOException {
+        return as.readBoolean(context.get(field));
     }
 
     @Override
-    public <T> T readPrimitive(JsonObject context, String field, JasonLib.Serializer.Reader<JsonElement, T> as) throws IOException {
+    public int readInt(Fields context, String field, JasonLib.Serializer.IntReader<JsonElement> as) throws IOException {
+        return as.readInt(context.get(field));
+    }
+
+    @Override
+    public long readLong(Fields context, String field, JasonLib.Serializer.LongReader<JsonElement> as) throws IOException {
+        return as.readLong(context.get(field));
+    }
+
+    @Override
+    public float readFloat(Fields context, String field, JasonLib.Serializer.FloatReader<JsonElement> as) throws IOException {
+        return as.readFloat(context.get(field));
+    }
+
+    @Override
+    public double readDouble(Fields context, String field, JasonLib.Serializer.DoubleReader<JsonElement> as) throws IOException {
+        return as.readDouble(context.get(field));
+    }
+
+    @Override
+    public <T> T readPrimitive(Fields context, String field, JasonLib.Serializer.Reader<JsonElement, T> as) throws IOException {
         return as.read(context.get(field));
     }
 
     @Override
-    public <T> Optional<T> readOptional(JsonObject context, String field, Reader<JsonElement, T> of) throws IOException {
+    public <T> Optional<T> readOptional(Fields context, String field, Reader<JsonElement, T> of) throws IOException {
         JsonElement e = context.get(field);
-        return e == null ? Optional.empty() : Optional.of(of.read(context.get(field)));
+        return e == null ? Optional.empty() : Optional.of(of.read(e));
     }
 
     @Override
-    public <T> List<T> readList(JsonObject context, String field, JasonLib.Serializer.Reader<JsonElement, T> of) throws IOException {
-        JsonArray a = context.getAsJsonArray(field);
-        List<T> l = new LinkedList<>();
+    public <T> List<T> readList(Fields context, String field, JasonLib.Serializer.Reader<JsonElement, T> of, List<T> into) throws IOException {
+        JsonArray a = context.get(field).getAsJsonArray();
+        JasonLib.CollectionFactory.ListBuilder<T> l = _collections.list(a.size(), into);
         for (int i = 0; i < a.size(); ++i) l.add(of.read(a.get(i)));
-        return l;
+        return l.build();
     }
 
     @Override
     @SuppressWarnings("unchecked")
-    public <T, U> Map<T, U> readMap(JsonObject context, String field, JasonLib.Serializer.Reader<JsonElement, T> rkey, JasonLib.Serializer.Reader<JsonElement, U> rvalue) throws IOException {
-        JsonObject o = context.getAsJsonObject(field);
-        Map<T, U> m = new HashMap<>();
+    public <T, U> Map<T, U> readMap(Fields context, String field, JasonLib.Serializer.Reader<JsonElement, T> rkey, JasonLib.Serializer.Reader<JsonElement, U> rvalue, Map<T, U> into) throws IOException {
+        Set<Map.Entry<String, JsonElement>> entries = context.get(field).getAsJsonObject().entrySet();
+        JasonLib.CollectionFactory.MapBuilder<T, U> m = _collections.map(entries.size(), into);
         try {
-            for (Map.Entry<String, JsonElement> e : o.entrySet()) m.put((T)e.getKey(), rvalue.read(e.getValue()));
+            for (Map.Entry<String, JsonElement> e : entries) m.put((T)string(e.getKey()), rvalue.read(e.getValue()));
         } catch (ClassCastException e) {
             throw new IOException("json maps must have string keys");
         }
-        return m;
+        return m.build();
+    }
+
+    @Override
+    public int[] readInts(Fields context, String field, JasonLib.Serializer.IntReader<JsonElement> of) throws IOException {
+        JsonArray a = context.get(field).getAsJsonArray();
+        int[] r = new int[a.size()];
+        for (int i = 0; i < r.length; ++i) r[i] = of.readInt(a.get(i));
+        return r;
+    }
+
+    @Override
+    public long[] readLongs(Fields context, String field, JasonLib.Serializer.LongReader<JsonElement> of) throws IOException {
+        JsonArray a = context.get(field).getAsJsonArray();
+        long[] r = new long[a.size()];
+        for (int i = 0; i < r.length; ++i) r[i] = of.readLong(a.get(i));
+        return r;
+    }
+
+    @Override
+    public float[] readFloats(Fields context, String field, JasonLib.Serializer.FloatReader<JsonElement> of) throws IOException {
+        JsonArray a = context.get(field).getAsJsonArray();
+        float[] r = new float[a.size()];
+        for (int i = 0; i < r.length; ++i) r[i] = of.readFloat(a.get(i));
+        return r;
+    }
+
+    @Override
+    public double[] readDoubles(Fields context, String field, JasonLib.Serializer.DoubleReader<JsonElement> of) throws IOException {
+        JsonArray a = context.get(field).getAsJsonArray();
+        double[] r = new double[a.size()];
+        for (int i = 0; i < r.length; ++i) r[i] = of.readDouble(a.get(i));
+        return r;
+    }
+
+    @Override
+    public void skipPrimitive(Fields context, String field, JasonLib.Serializer.Reader<JsonElement, ?> as) {
     }
 
     @Override
-    public JasonLib.Serializer.Writer<JsonElement, Boolean> booleanWriter() throws IOException {
-        return (json, value) -> new JsonPrimitive(value);
+    public void skipOptional(Fields context, String field, JasonLib.Serializer.Reader<JsonElement, ?> of) {
     }
 
     @Override
-    public JasonLib.Serializer.Writer<JsonElement, Integer> integerWriter() throws IOException {
-        return (json, value) -> new JsonPrimitive(value);
+    public void skipList(Fields context, String field, JasonLib.Serializer.Reader<JsonElement, ?> of) {
     }
 
     @Override
-    public JasonLib.Serializer.Writer<JsonElement, Long> longWriter() throws IOException {
-        return (json, value) -> new JsonPrimitive(value);
+    public void skipMap(Fields context, String field, JasonLib.Serializer.Reader<JsonElement, ?> rkey, JasonLib.Serializer.Reader<JsonElement, ?> rvalue) {
     }
 
     @Override
-    public JasonLib.Serializer.Writer<JsonElement, Float> floatWriter() throws IOException {
-        return (json, value) -> new JsonPrimitive(value);
+    public JasonLib.Serializer.BooleanWriter<JsonElement> booleanWriter() throws IOException {
+        return _booleanWriter;
     }
 
     @Override
-    public JasonLib.Serializer.Writer<JsonElement, Double> doubleWriter() throws IOException {
-        return (json, value) -> new JsonPrimitive(value);
+    public JasonLib.Serializer.IntWriter<JsonElement> integerWriter() throws IOException {
+        return _integerWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.LongWriter<JsonElement> longWriter() throws IOException {
+        return _longWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.FloatWriter<JsonElement> floatWriter() throws IOException {
+        return _floatWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.DoubleWriter<JsonElement> doubleWriter() throws IOException {
+        return _doubleWriter;
     }
 
     @Override
     public JasonLib.Serializer.Writer<JsonElement, String> stringWriter() throws IOException {
-        return (json, value) -> new JsonPrimitive(value);
+        return _stringWriter;
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T extends JasonLib.Serializable> JasonLib.Serializer.Writer<JsonElement, T> serializableWriter() throws IOException {
-        return (json, value) -> value.serialize(Json.this, new JsonObject());
+        return (JasonLib.Serializer.Writer<JsonElement, T>)_serializableWriter;
+    }
+
+    @Override
+    public JsonObject writeBoolean(JsonObject context, String field, JasonLib.Serializer.BooleanWriter<JsonElement> as, boolean value) throws IOException {
+        context.add(field, as.writeBoolean(null, value));
+        return context;
+    }
+
+    @Override
+    public JsonObject writeInt(JsonObject context, String field, JasonLib.Serializer.IntWriter<JsonElement> as, int value) throws IOException {
+        context.add(field, as.writeInt(null, value));
+        return context;
+    }
+
+    @Override
+    public JsonObject writeLong(JsonObject context, String field, JasonLib.Serializer.LongWriter<JsonElement> as, long value) throws IOException {
+        context.add(field, as.writeLong(null, value));
+        return context;
+    }
+
+    @Override
+    public JsonObject writeFloat(JsonObject context, String field, JasonLib.Serializer.FloatWriter<JsonElement> as, float value) throws IOException {
+        context.add(field, as.writeFloat(null, value));
+        return context;
+    }
+
+    @Override
+    public JsonObject writeDouble(JsonObject context, String field, JasonLib.Serializer.DoubleWriter<JsonElement> as, double value) throws IOException {
+        context.add(field, as.writeDouble(null, value));
+        return context;
     }
 
     @Override
@@ -162,4 +352,36 @@ public class Json implements JasonLib.Serializer<JsonObject, JsonObject, JsonEle
         context.add(field, o);
         return context;
     }
+
+    @Override
+    public JsonObject writeInts(JsonObject context, String field, JasonLib.Serializer.IntWriter<JsonElement> of, int[] value) throws IOException {
+        JsonArray a = new JsonArray();
+        for (int v : value) a.add(of.writeInt(null, v));
+        context.add(field, a);
+        return context;
+    }
+
+    @Override
+    public JsonObject writeLongs(JsonObject context, String field, JasonLib.Serializer.LongWriter<JsonElement> of, long[] value) throws IOException {
+        JsonArray a = new JsonArray();
+        for (long v : value) a.add(of.writeLong(null, v));
+        context.add(field, a);
+        return context;
+    }
+
+    @Override
+    public JsonObject writeFloats(JsonObject context, String field, JasonLib.Serializer.FloatWriter<JsonElement> of, float[] value) throws IOException {
+        JsonArray a = new JsonArray();
+        for (float v : value) a.add(of.writeFloat(null, v));
+        context.add(field, a);
+        return context;
+    }
+
+    @Override
+    public JsonObject writeDoubles(JsonObject context, String field, JasonLib.Serializer.DoubleWriter<JsonElement> of, double[] value) throws IOException {
+        JsonArray a = new JsonArray();
+        for (double v : value) a.add(of.writeDouble(null, v));
+        context.add(field, a);
+        return context;
+    }
 }
@@ -0,0 +1,565 @@
+package com.github.mortimersmith.jason.json;
+
+import com.github.mortimersmith.jason.JasonLib;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * JSON serializer that writes UTF-8 straight into a growable byte array, without going through
+ * a {@link java.io.Writer} or boxing values.
+ *
+ * The output is the same JSON {@link JsonStream} writes. Member names come pre-quoted from the
+ * generated type's schema, numbers are formatted in place and strings are escaped and encoded
+ * in one pass. Reading is done by a {@link JsonStream} over the same bytes.
+ *
+ * Doubles and floats are written as the shortest decimal that reads back to the same value, as
+ * {@link Double#toString(double)} writes them from Java 19 on; before that, it occasionally
+ * writes a longer decimal for the same value.
+ */
+public class JsonBytes implements JasonLib.Serializer<JsonStream.Fields, JsonBytes.Output, JsonStream.Input, JsonBytes.Output>
+{
+    public static final JsonBytes INSTANCE = new JsonBytes();
+
+    private static final byte[] NULL = { 'n', 'u', 'l', 'l' };
+    private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+    private static final byte[] FALSE = { 'f', 'a', 'l', 's', 'e' };
+    private static final byte[] LONG_MIN = Long.toString(Long.MIN_VALUE).getBytes();
+    private static final byte[] HEX = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f' };
+    private static final byte[] DIGITS = new byte[200];
+    static {
+        for (int i = 0; i < 100; ++i) {
+            DIGITS[2 * i] = (byte)('0' + i / 10);
+            DIGITS[2 * i + 1] = (byte)('0' + i % 10);
+        }
+    }
+
+    private final JsonStream _stream;
+    private final JasonLib.Serializer.BooleanWriter<Output> _booleanWriter = (o, value) -> o.put(value ? TRUE : FALSE).put(',');
+    private final JasonLib.Serializer.IntWriter<Output> _integerWriter = (o, value) -> o.putLong(value).put(',');
+    private final JasonLib.Serializer.LongWriter<Output> _longWriter = (o, value) -> o.putLong(value).put(',');
+    private final JasonLib.Serializer.FloatWriter<Output> _floatWriter = (o, value) -> o.putFloat(value).put(',');
+    private final JasonLib.Serializer.DoubleWriter<Output> _doubleWriter = (o, value) -> o.putDouble(value).put(',');
+    private final JasonLib.Serializer.Writer<Output, String> _stringWriter = (o, value) -> o.putString(value).put(',');
+    private final JasonLib.Serializer.Writer<Output, JasonLib.Serializable> _serializableWriter = (o, value) -> {
+        JasonLib.Schema schema = o._schema;
+        int next = o._next;
+        o.put('{');
+        value.serialize(JsonBytes.this, o);
+        o._schema = schema;
+        o._next = next;
+        return o.close('}').put(',');
+    };
+
+    public JsonBytes() {
+        this(JasonLib.CollectionFactory.DEFAULT);
+    }
+
+    /**
+     * A serializer that reads lists and maps into collections made by {@code collections}.
+     */
+    public JsonBytes(JasonLib.CollectionFactory collections) {
+        this(collections, null);
+    }
+
+    /**
+     * As above, also looking up the strings it reads in {@code strings}, if not null.
+     */
+    public JsonBytes(JasonLib.CollectionFactory collections, JasonLib.StringCache strings) {
+        _stream = new JsonStream(collections, strings);
+    }
+
+    public static <T extends JasonLib.Serializable> byte[] wrap(T t) throws IOException
+    {
+        return wrap(t, new Output(256)).toByteArray();
+    }
+
+    /**
+     * Appends the JSON for {@code t} to {@code out}, which can be {@link Output#clear() cleared}
+     * and reused for the next object.
+     */
+    public static <T extends JasonLib.Serializable> Output wrap(T t, Output out) throws IOException
+    {
+        out._schema = null;
+        out.put('{');
+        t.serialize(INSTANCE, out);
+        return out.close('}');
+    }
+
+    public static <T extends JasonLib.Serializable> void wrap(T t, OutputStream out) throws IOException
+    {
+        wrap(t, new Output(256)).writeTo(out);
+    }
+
+    public static <T extends JasonLib.Serializable> T unwrap(byte[] in, JasonLib.From<T> from) throws IOException
+    {
+        return JsonStream.unwrap(new ByteArrayInputStream(in), from);
+    }
+
+    /**
+     * A growable array of UTF-8 bytes, along with the schema of the object being written.
+     *
+     * Every value is followed by a comma, which the end of its object or array replaces.
+     */
+    public static class Output
+    {
+        private byte[] _bytes;
+        private int _length;
+        private JasonLib.Schema _schema;
+        private int _next;
+
+        public Output(int capacity) {
+            _bytes = new byte[Math.max(capacity, 16)];
+        }
+
+        /**
+         * The array written into, valid up to {@link #length()}; it is replaced as it grows.
+         */
+        public byte[] array() {
+            return _bytes;
+        }
+
+        public int length() {
+            return _length;
+        }
+
+        public Output clear() {
+            _length = 0;
+            _schema = null;
+            return this;
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(_bytes, _length);
+        }
+
+        /**
+         * The bytes written so far, wrapped without copying.
+         */
+        public ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(_bytes, 0, _length);
+        }
+
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(_bytes, 0, _length);
+        }
+
+        private void ensure(int bytes) {
+            if (_bytes.length - _length >= bytes) return;
+            _bytes = Arrays.copyOf(_bytes, Math.max(_bytes.length * 2, _length + bytes));
+        }
+
+        private Output put(char c) {
+            ensure(1);
+            _bytes[_length++] = (byte)c;
+            return this;
+        }
+
+        private Output put(byte[] b) {
+            ensure(b.length);
+            System.arraycopy(b, 0, _bytes, _length, b.length);
+            _length += b.length;
+            return this;
+        }
+
+        private Output close(char c) {
+            if (_bytes[_length - 1] == ',') _bytes[_length - 1] = (byte)c;
+            else put(c);
+            return this;
+        }
+
+        private Output name(String field) throws IOException {
+            JasonLib.Schema schema = _schema;
+            int i = schema == null ? -1 : schema.indexOf(field, _next);
+            if (i < 0) return putString(field).put(':');
+            _next = i + 1;
+            return put(schema.json(i));
+        }
+
+        private Output putLong(long v) {
+            if (v == Long.MIN_VALUE) return put(LONG_MIN);
+            ensure(20);
+            if (v < 0) {
+                _bytes[_length++] = '-';
+                v = -v;
+            }
+            int end = _length + digits(v);
+            _length = end;
+            while (v >= 100) {
+                int r = (int)(v % 100);
+                v /= 100;
+                _bytes[--end] = DIGITS[2 * r + 1];
+                _bytes[--end] = DIGITS[2 * r];
+            }
+            if (v >= 10) {
+                _bytes[--end] = DIGITS[2 * (int)v + 1];
+                _bytes[--end] = DIGITS[2 * (int)v];
+            } else {
+                _bytes[--end] = (byte)('0' + v);
+            }
+            return this;
+        }
+
+        private static int digits(long v) {
+            int n = 1;
+            for (long p = 10; n < 19 && v >= p; p *= 10) ++n;
+            return n;
+        }
+
+        private Output putDouble(double v) throws IOException {
+            if (Double.isNaN(v) || Double.isInfinite(v)) throw new IOException("numeric values must be finite: " + v);
+            ensure(ShortestDecimal.MAX_LENGTH);
+            _length = ShortestDecimal.put(_bytes, _length, v);
+            return this;
+        }
+
+        private Output putFloat(float v) throws IOException {
+            if (Float.isNaN(v) || Float.isInfinite(v)) throw new IOException("numeric values must be finite: " + v);
+            ensure(ShortestDecimal.MAX_LENGTH);
+            _length = ShortestDecimal.put(_bytes, _length, v);
+            return this;
+        }
+
+        private Output putString(String s) {
+            if (s == null) return put(NULL);
+            int len = s.length();
+            ensure(2 + 6 * len);
+            byte[] b = _bytes;
+            int n = _length;
+            b[n++] = '"';
+            for (int i = 0; i < len; ++i) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    if (c >= 0x20 && c != '"' && c != '\\') {
+                        b[n++] = (byte)c;
+                    } else {
+                        n = escape(b, n, c);
+                    }
+                } else if (c < 0x800) {
+                    b[n++] = (byte)(0xc0 | c >> 6);
+                    b[n++] = (byte)(0x80 | c & 0x3f);
+                } else if (c == '\u2028' || c == '\u2029') {
+                    n = escape(b, n, c);
+                } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    b[n++] = (byte)(0xf0 | cp >> 18);
+                    b[n++] = (byte)(0x80 | cp >> 12 & 0x3f);
+                    b[n++] = (byte)(0x80 | cp >> 6 & 0x3f);
+                    b[n++] = (byte)(0x80 | cp & 0x3f);
+                } else if (Character.isSurrogate(c)) {
+                    b[n++] = '?';
+                } else {
+                    b[n++] = (byte)(0xe0 | c >> 12);
+                    b[n++] = (byte)(0x80 | c >> 6 & 0x3f);
+                    b[n++] = (byte)(0x80 | c & 0x3f);
+                }
+            }
+            b[n++] = '"';
+            _length = n;
+            return this;
+        }
+
+        private static int escape(byte[] b, int n, char c) {
+            b[n++] = '\\';
+            switch (c) {
+            case '"': b[n++] = '"'; return n;
+            case '\\': b[n++] = '\\'; return n;
+            case '\n': b[n++] = 'n'; return n;
+            case '\r': b[n++] = 'r'; return n;
+            case '\t': b[n++] = 't'; return n;
+            case '\b': b[n++] = 'b'; return n;
+            case '\f': b[n++] = 'f'; return n;
+            default:
+                b[n++] = 'u';
+                b[n++] = HEX[c >> 12];
+                b[n++] = HEX[c >> 8 & 0xf];
+                b[n++] = HEX[c >> 4 & 0xf];
+                b[n++] = HEX[c & 0xf];
+                return n;
+            }
+        }
+    }
+
+    @Override
+    public JsonStream.Fields childContext(JsonStream.Input context) throws IOException {
+        return _stream.childContext(context);
+    }
+
+    @Override
+    public JsonStream.Fields childContext(JsonStream.Input context, JasonLib.Schema schema) throws IOException {
+        return _stream.childContext(context, schema);
+    }
+
+    @Override
+    public Output writeContext(Output context, JasonLib.Schema schema) {
+        context._schema = schema;
+        context._next = 0;
+        return context;
+    }
+
+    @Override
+    public boolean keyed() {
+        return true;
+    }
+
+    @Override
+    public String nextField(JsonStream.Fields context) throws IOException {
+        return _stream.nextField(context);
+    }
+
+    @Override
+    public JasonLib.Serializer.BooleanReader<JsonStream.Input> booleanReader() throws IOException {
+        return _stream.booleanReader();
+    }
+
+    @Override
+    public JasonLib.Serializer.IntReader<JsonStream.Input> integerReader() throws IOException {
+        return _stream.integerReader();
+    }
+
+    @Override
+    public JasonLib.Serializer.LongReader<JsonStream.Input> longReader() throws IOException {
+        return _stream.longReader();
+    }
+
+    @Override
+    public JasonLib.Serializer.FloatReader<JsonStream.Input> floatReader() throws IOException {
+        return _stream.floatReader();
+    }
+
+    @Override
+    public JasonLib.Serializer.DoubleReader<JsonStream.Input> doubleReader() throws IOException {
+        return _stream.doubleReader();
+    }
+
+    @Override
+    public JasonLib.Serializer.Reader<JsonStream.Input, String> stringReader() throws IOException {
+        return _stream.stringReader();
+    }
+
+    @Override
+    public <T extends JasonLib.Serializable> JasonLib.Serializer.Reader<JsonStream.Input, T> serializableReader(Class<T> type, JasonLib.Serializer.ReaderFactory<T> factory) throws IOException {
+        return _stream.serializableReader(type, factory);
+    }
+
+    @Override
+    public <T> JasonLib.Serializer.Reader<JsonStream.Input, T> cachedReader(Object key, JasonLib.Serializer.ReaderFactory<T> factory) throws IOException {
+        return _stream.cachedReader(key, factory);
+    }
+
+    @Override
+    public boolean readBoolean(JsonStream.Fields context, String field, JasonLib.Serializer.BooleanReader<JsonStream.Input> as) throws IOException {
+        return _stream.readBoolean(context, field, as);
+    }
+
+    @Override
+    public int readInt(JsonStream.Fields context, String field, JasonLib.Serializer.IntReader<JsonStream.Input> as) throws IOException {
+        return _stream.readInt(context, field, as);
+    }
+
+    @Override
+    public long readLong(JsonStream.Fields context, String field, JasonLib.Serializer.LongReader<JsonStream.Input> as) throws IOException {
+        return _stream.readLong(context, field, as);
+    }
+
+    @Override
+    public float readFloat(JsonStream.Fields context, String field, JasonLib.Serializer.FloatReader<JsonStream.Input> as) throws IOException {
+        return _stream.readFloat(context, field, as);
+    }
+
+    @Override
+    public double readDouble(JsonStream.Fields context, String field, JasonLib.Serializer.DoubleReader<JsonStream.Input> as) throws IOException {
+        return _stream.readDouble(context, field, as);
+    }
+
+    @Override
+    public <T> T readPrimitive(JsonStream.Fields context, String field, JasonLib.Serializer.Reader<JsonStream.Input, T> as) throws IOException {
+        return _stream.readPrimitive(context, field, as);
+    }
+
+    @Override
+    public <T> Optional<T> readOptional(JsonStream.Fields context, String field, JasonLib.Serializer.Reader<JsonStream.Input, T> of) throws IOException {
+        return _stream.readOptional(context, field, of);
+    }
+
+    @Override
+    public <T> List<T> readList(JsonStream.Fields context, String field, JasonLib.Serializer.Reader<JsonStream.Input, T> of, List<T> into) throws IOException {
+        return _stream.readList(context, field, of, into);
+    }
+
+    @Override
+    public <T, U> Map<T, U> readMap(JsonStream.Fields context, String field, JasonLib.Serializer.Reader<JsonStream.Input, T> rkey, JasonLib.Serializer.Reader<JsonStream.Input, U> rvalue, Map<T, U> into) throws IOException {
+        return _stream.readMap(context, field, rkey, rvalue, into);
+    }
+
+    @Override
+    public int[] readInts(JsonStream.Fields context, String field, JasonLib.Serializer.IntReader<JsonStream.Input> of) throws IOException {
+        return _stream.readInts(context, field, of);
+    }
+
+    @Override
+    public long[] readLongs(JsonStream.Fields context, String field, JasonLib.Serializer.LongReader<JsonStream.Input> of) throws IOException {
+        return _stream.readLongs(context, field, of);
+    }
+
+    @Override
+    public float[] readFloats(JsonStream.Fields context, String field, JasonLib.Serializer.FloatReader<JsonStream.Input> of) throws IOException {
+        return _stream.readFloats(context, field, of);
+    }
+
+    @Override
+    public double[] readDoubles(JsonStream.Fields context, String field, JasonLib.Serializer.DoubleReader<JsonStream.Input> of) throws IOException {
+        return _stream.readDoubles(context, field, of);
+    }
+
+    @Override
+    public void skipPrimitive(JsonStream.Fields context, String field, JasonLib.Serializer.Reader<JsonStream.Input, ?> as) throws IOException {
+        _stream.skipPrimitive(context, field, as);
+    }
+
+    @Override
+    public void skipOptional(JsonStream.Fields context, String field, JasonLib.Serializer.Reader<JsonStream.Input, ?> of) throws IOException {
+        _stream.skipOptional(context, field, of);
+    }
+
+    @Override
+    public void skipList(JsonStream.Fields context, String field, JasonLib.Serializer.Reader<JsonStream.Input, ?> of) throws IOException {
+        _stream.skipList(context, field, of);
+    }
+
+    @Override
+    public void skipMap(JsonStream.Fields context, String field, JasonLib.Serializer.Reader<JsonStream.Input, ?> rkey, JasonLib.Serializer.Reader<JsonStream.Input, ?> rvalue) throws IOException {
+        _stream.skipMap(context, field, rkey, rvalue);
+    }
+
+    @Override
+    public JasonLib.Serializer.BooleanWriter<Output> booleanWriter() throws IOException {
+        return _booleanWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.IntWriter<Output> integerWriter() throws IOException {
+        return _integerWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.LongWriter<Output> longWriter() throws IOException {
+        return _longWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.FloatWriter<Output> floatWriter() throws IOException {
+        return _floatWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.DoubleWriter<Output> doubleWriter() throws IOException {
+        return _doubleWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.Writer<Output, String> stringWriter() throws IOException {
+        return _stringWriter;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends JasonLib.Serializable> JasonLib.Serializer.Writer<Output, T> serializableWriter() throws IOException {
+        return (JasonLib.Serializer.Writer<Output, T>)_serializableWriter;
+    }
+
+    @Override
+    public Output writeBoolean(Output context, String field, JasonLib.Serializer.BooleanWriter<Output> as, boolean value) throws IOException {
+        return as.writeBoolean(context.name(field), value);
+    }
+
+    @Override
+    public Output writeInt(Output context, String field, JasonLib.Serializer.IntWriter<Output> as, int value) throws IOException {
+        return as.writeInt(context.name(field), value);
+    }
+
+    @Override
+    public Output writeLong(Output context, String field, JasonLib.Serializer.LongWriter<Output> as, long value) throws IOException {
+        return as.writeLong(context.name(field), value);
+    }
+
+    @Override
+    public Output writeFloat(Output context, String field, JasonLib.Serializer.FloatWriter<Output> as, float value) throws IOException {
+        return as.writeFloat(context.name(field), value);
+    }
+
+    @Override
+    public Output writeDouble(Output context, String field, JasonLib.Serializer.DoubleWriter<Output> as, double value) throws IOException {
+        return as.writeDouble(context.name(field), value);
+    }
+
+    @Override
+    public <T> Output writePrimitive(Output context, String field, JasonLib.Serializer.Writer<Output, T> as, T value) throws IOException {
+        context.name(field);
+        return value == null ? context.put(NULL).put(',') : as.write(context, value);
+    }
+
+    @Override
+    public <T> Output writeOptional(Output context, String field, JasonLib.Serializer.Writer<Output, T> of, Optional<T> value) throws IOException {
+        if (value.isPresent()) of.write(context.name(field), value.get());
+        return context;
+    }
+
+    @Override
+    public <T> Output writeList(Output context, String field, JasonLib.Serializer.Writer<Output, T> of, List<T> value) throws IOException {
+        context.name(field).put('[');
+        for (T t : value) {
+            if (t == null) context.put(NULL).put(',');
+            else of.write(context, t);
+        }
+        return context.close(']').put(',');
+    }
+
+    @Override
+    public <T, U> Output writeMap(Output context, String field, JasonLib.Serializer.Writer<Output, T> wkey, JasonLib.Serializer.Writer<Output, U> wvalue, Map<T, U> value) throws IOException {
+        context.name(field).put('{');
+        try {
+            for (Map.Entry<T, U> e : value.entrySet()) {
+                context.putString((String)e.getKey()).put(':');
+                if (e.getValue() == null) context.put(NULL).put(',');
+                else wvalue.write(context, e.getValue());
+            }
+        } catch (ClassCastException e) {
+            throw new IOException("json maps must have string keys");
+        }
+        return context.close('}').put(',');
+    }
+
+    @Override
+    public Output writeInts(Output context, String field, JasonLib.Serializer.IntWriter<Output> of, int[] value) throws IOException {
+        context.name(field).put('[');
+        for (int v : value) of.writeInt(context, v);
+        return context.close(']').put(',');
+    }
+
+    @Override
+    public Output writeLongs(Output context, String field, JasonLib.Serializer.LongWriter<Output> of, long[] value) throws IOException {
+        context.name(field).put('[');
+        for (long v : value) of.writeLong(context, v);
+        return context.close(']').put(',');
+    }
+
+    @Override
+    public Output writeFloats(Output context, String field, JasonLib.Serializer.FloatWriter<Output> of, float[] value) throws IOException {
+        context.name(field).put('[');
+        for (float v : value) of.writeFloat(context, v);
+        return context.close(']').put(',');
+    }
+
+    @Override
+    public Output writeDoubles(Output context, String field, JasonLib.Serializer.DoubleWriter<Output> of, double[] value) throws IOException {
+        context.name(field).put('[');
+        for (double v : value) of.writeDouble(context, v);
+        return context.close(']').put(',');
+    }
+}
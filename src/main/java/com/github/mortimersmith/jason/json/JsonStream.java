@@ -0,0 +1,566 @@
+package com.github.mortimersmith.jason.json;
+
+import com.github.mortimersmith.jason.JasonLib;
+import static com.github.mortimersmith.utils.Utils.ifPresentE;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * JSON serializer that reads from a {@link JsonReader} and writes to a {@link JsonWriter}
+ * without building an intermediate tree.
+ *
+ * Fields may arrive in any order. A field that is passed over while looking for another one
+ * is buffered until it is asked for; trailing fields that are never asked for are skipped. When
+ * a generated type supplies its schema, passed-over fields are buffered by member index, and
+ * those the schema does not know are skipped without being parsed. Generated types that walk the
+ * fields with {@link #nextField(Fields)} read each value where it is and buffer nothing.
+ */
+public class JsonStream implements JasonLib.Serializer<JsonStream.Fields, JsonWriter, JsonStream.Input, JsonWriter>
+{
+    public static final JsonStream INSTANCE = new JsonStream();
+
+    private static final JsonParser _parser = new JsonParser();
+
+    private final JasonLib.CollectionFactory _collections;
+    private final JasonLib.StringCache _strings;
+    private final JasonLib.ReaderCache<Input> _readers = new JasonLib.ReaderCache<>();
+    private final JasonLib.Serializer.BooleanReader<Input> _booleanReader = (in) -> in._in.nextBoolean();
+    private final JasonLib.Serializer.IntReader<Input> _integerReader = (in) -> in._in.nextInt();
+    private final JasonLib.Serializer.LongReader<Input> _longReader = (in) -> in._in.nextLong();
+    private final JasonLib.Serializer.FloatReader<Input> _floatReader = (in) -> (float)in._in.nextDouble();
+    private final JasonLib.Serializer.DoubleReader<Input> _doubleReader = (in) -> in._in.nextDouble();
+    private final JasonLib.Serializer.Reader<Input, String> _stringReader = (in) -> string(in._in.nextString());
+    private final JasonLib.Serializer.BooleanWriter<JsonWriter> _booleanWriter = (w, value) -> w.value(value);
+    private final JasonLib.Serializer.IntWriter<JsonWriter> _integerWriter = (w, value) -> w.value(value);
+    private final JasonLib.Serializer.LongWriter<JsonWriter> _longWriter = (w, value) -> w.value(value);
+    private final JasonLib.Serializer.FloatWriter<JsonWriter> _floatWriter = (w, value) -> w.value(Float.valueOf(value));
+    private final JasonLib.Serializer.DoubleWriter<JsonWriter> _doubleWriter = (w, value) -> w.value(value);
+    private final JasonLib.Serializer.Writer<JsonWriter, String> _stringWriter = (w, value) -> w.value(value);
+    private final JasonLib.Serializer.Writer<JsonWriter, JasonLib.Serializable> _serializableWriter = (w, value) -> value.serialize(JsonStream.this, w.beginObject()).endObject();
+
+    public JsonStream() {
+        this(JasonLib.CollectionFactory.DEFAULT);
+    }
+
+    /**
+     * A serializer that reads lists and maps into collections made by {@code collections}.
+     */
+    public JsonStream(JasonLib.CollectionFactory collections) {
+        this(collections, null);
+    }
+
+    /**
+     * As above, also looking up the strings it reads in {@code strings}, if not null.
+     */
+    public JsonStream(JasonLib.CollectionFactory collections, JasonLib.StringCache strings) {
+        _collections = collections;
+        _strings = strings;
+    }
+
+    private String string(String s) {
+        return _strings == null ? s : _strings.intern(s);
+    }
+
+    public static <T extends JasonLib.Serializable> void wrap(T t, java.io.Writer out) throws IOException
+    {
+        JsonWriter w = new JsonWriter(out);
+        INSTANCE.<T>serializableWriter().write(w, t);
+        w.flush();
+    }
+
+    public static <T extends JasonLib.Serializable> void wrap(T t, OutputStream out) throws IOException
+    {
+        java.io.Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        wrap(t, w);
+        w.flush();
+    }
+
+    public static <T extends JasonLib.Serializable> T unwrap(java.io.Reader in, JasonLib.From<T> from) throws IOException
+    {
+        Input input = new Input(new JsonReader(in));
+        T t = from.get(INSTANCE, input);
+        input.settle(0);
+        return t;
+    }
+
+    public static <T extends JasonLib.Serializable> T unwrap(InputStream in, JasonLib.From<T> from) throws IOException
+    {
+        return unwrap(new InputStreamReader(in, StandardCharsets.UTF_8), from);
+    }
+
+    /**
+     * A read position in a JSON document, along with the objects that have been opened on it
+     * and not yet read to their end.
+     */
+    public static class Input
+    {
+        private final JsonReader _in;
+        private final Deque<Fields> _open = new ArrayDeque<>();
+
+        public Input(JsonReader in) {
+            _in = in;
+        }
+
+        private void settle(int depth) throws IOException {
+            while (_open.size() > depth) _open.peek().drain();
+        }
+    }
+
+    /**
+     * The fields of one JSON object being read.
+     */
+    public static class Fields
+    {
+        private final Input _input;
+        private final int _depth;
+        private final JasonLib.Schema _schema;
+        private Map<String, JsonElement> _pending;
+        private JsonElement[] _indexed;
+        private String _current;
+        private int _next;
+        private boolean _done;
+
+        private Fields(Input input, JasonLib.Schema schema) {
+            _input = input;
+            _depth = input._open.size();
+            _schema = schema;
+        }
+
+        private Input seek(String field) throws IOException {
+            _input.settle(_depth + 1);
+            if (_current != null) {
+                boolean found = _current.equals(field);
+                if (!found) _input._in.skipValue();
+                _current = null;
+                if (found) return _input;
+            }
+            int index = _schema == null ? -1 : _schema.indexOf(field, _next);
+            if (index >= 0) _next = index + 1;
+            JsonElement e = null;
+            if (index >= 0 && _indexed != null) {
+                e = _indexed[index];
+                _indexed[index] = null;
+            } else if (index < 0 && _pending != null) {
+                e = _pending.remove(field);
+            }
+            if (e != null) {
+                JsonReader buffered = new JsonReader(new StringReader(e.toString()));
+                buffered.setLenient(true);
+                return new Input(buffered);
+            }
+            if (_done) return null;
+            JsonReader in = _input._in;
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (name.equals(field)) return _input;
+                if (_schema == null) {
+                    if (_pending == null) _pending = new HashMap<>();
+                    _pending.put(name, _parser.parse(in));
+                } else {
+                    int i = _schema.indexOf(name);
+                    if (i < 0) {
+                        in.skipValue();
+                        continue;
+                    }
+                    if (_indexed == null) _indexed = new JsonElement[_schema.size()];
+                    _indexed[i] = _parser.parse(in);
+                }
+            }
+            finish();
+            return null;
+        }
+
+        private String next() throws IOException {
+            _input.settle(_depth + 1);
+            if (_current != null) _input._in.skipValue();
+            _current = null;
+            if (_done) return null;
+            if (!_input._in.hasNext()) {
+                finish();
+                return null;
+            }
+            _current = _input._in.nextName();
+            return _current;
+        }
+
+        private Input require(String field) throws IOException {
+            Input in = seek(field);
+            if (in == null) throw new IOException("missing field: " + field);
+            return in;
+        }
+
+        private void drain() throws IOException {
+            JsonReader in = _input._in;
+            if (_current != null) in.skipValue();
+            _current = null;
+            while (in.hasNext()) {
+                in.nextName();
+                in.skipValue();
+            }
+            finish();
+            _pending = null;
+            _indexed = null;
+        }
+
+        private void finish() throws IOException {
+            _input._in.endObject();
+            _input._open.pop();
+            _done = true;
+        }
+    }
+
+    @Override
+    public Fields childContext(Input context) throws IOException {
+        return childContext(context, null);
+    }
+
+    @Override
+    public Fields childContext(Input context, JasonLib.Schema schema) throws IOException {
+        context._in.beginObject();
+        Fields f = new Fields(context, schema);
+        context._open.push(f);
+        return f;
+    }
+
+    @Override
+    public boolean keyed() {
+        return true;
+    }
+
+    @Override
+    public String nextField(Fields context) throws IOException {
+        return context.next();
+    }
+
+    @Override
+    public JasonLib.Serializer.BooleanReader<Input> booleanReader() throws IOException {
+        return _booleanReader;
+    }
+
+    @Override
+    public JasonLib.Serializer.IntReader<Input> integerReader() throws IOException {
+        return _integerReader;
+    }
+
+    @Override
+    public JasonLib.Serializer.LongReader<Input> longReader() throws IOException {
+        return _longReader;
+    }
+
+    @Override
+    public JasonLib.Serializer.FloatReader<Input> floatReader() throws IOException {
+        return _floatReader;
+    }
+
+    @Override
+    public JasonLib.Serializer.DoubleReader<Input> doubleReader() throws IOException {
+        return _doubleReader;
+    }
+
+    @Override
+    public JasonLib.Serializer.Reader<Input, String> stringReader() throws IOException {
+        return _stringReader;
+    }
+
+    @Override
+    public <T extends JasonLib.Serializable> JasonLib.Serializer.Reader<Input, T> serializableReader(Class<T> type, JasonLib.Serializer.ReaderFactory<T> factory) throws IOException {
+        return _readers.get(this, type, factory);
+    }
+
+    @Override
+    public <T> JasonLib.Serializer.Reader<Input, T> cachedReader(Object key, JasonLib.Serializer.ReaderFactory<T> factory) throws IOException {
+        return _readers.get(this, key, factory);
+    }
+
+    @Override
+    public boolean readBoolean(Fields context, String field, JasonLib.Serializer.BooleanReader<Input> as) throws IOException {
+        return as.readBoolean(context.require(field));
+    }
+
+    @Override
+    public int readInt(Fields context, String field, JasonLib.Serializer.IntReader<Input> as) throws IOException {
+        return as.readInt(context.require(field));
+    }
+
+    @Override
+    public long readLong(Fields context, String field, JasonLib.Serializer.LongReader<Input> as) throws IOException {
+        return as.readLong(context.require(field));
+    }
+
+    @Override
+    public float readFloat(Fields context, String field, JasonLib.Serializer.FloatReader<Input> as) throws IOException {
+        return as.readFloat(context.require(field));
+    }
+
+    @Override
+    public double readDouble(Fields context, String field, JasonLib.Serializer.DoubleReader<Input> as) throws IOException {
+        return as.readDouble(context.require(field));
+    }
+
+    @Override
+    public <T> T readPrimitive(Fields context, String field, JasonLib.Serializer.Reader<Input, T> as) throws IOException {
+        return as.read(context.require(field));
+    }
+
+    @Override
+    public <T> Optional<T> readOptional(Fields context, String field, JasonLib.Serializer.Reader<Input, T> of) throws IOException {
+        Input in = context.seek(field);
+        if (in == null) return Optional.empty();
+        if (in._in.peek() == JsonToken.NULL) {
+            in._in.nextNull();
+            return Optional.empty();
+        }
+        return Optional.of(of.read(in));
+    }
+
+    @Override
+    public <T> List<T> readList(Fields context, String field, JasonLib.Serializer.Reader<Input, T> of, List<T> into) throws IOException {
+        Input in = context.require(field);
+        int depth = in._open.size();
+        JasonLib.CollectionFactory.ListBuilder<T> l = _collections.list(-1, into);
+        in._in.beginArray();
+        while (in._in.hasNext()) {
+            l.add(of.read(in));
+            in.settle(depth);
+        }
+        in._in.endArray();
+        return l.build();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T, U> Map<T, U> readMap(Fields context, String field, JasonLib.Serializer.Reader<Input, T> rkey, JasonLib.Serializer.Reader<Input, U> rvalue, Map<T, U> into) throws IOException {
+        Input in = context.require(field);
+        int depth = in._open.size();
+        JasonLib.CollectionFactory.MapBuilder<T, U> m = _collections.map(-1, into);
+        in._in.beginObject();
+        try {
+            while (in._in.hasNext()) {
+                T key = (T)string(in._in.nextName());
+                m.put(key, rvalue.read(in));
+                in.settle(depth);
+            }
+        } catch (ClassCastException e) {
+            throw new IOException("json maps must have string keys");
+        }
+        in._in.endObject();
+        return m.build();
+    }
+
+    @Override
+    public int[] readInts(Fields context, String field, JasonLib.Serializer.IntReader<Input> of) throws IOException {
+        Input in = context.require(field);
+        int[] r = new int[16];
+        int n = 0;
+        in._in.beginArray();
+        while (in._in.hasNext()) {
+            if (n == r.length) r = Arrays.copyOf(r, n * 2);
+            r[n++] = of.readInt(in);
+        }
+        in._in.endArray();
+        return n == r.length ? r : Arrays.copyOf(r, n);
+    }
+
+    @Override
+    public long[] readLongs(Fields context, String field, JasonLib.Serializer.LongReader<Input> of) throws IOException {
+        Input in = context.require(field);
+        long[] r = new long[16];
+        int n = 0;
+        in._in.beginArray();
+        while (in._in.hasNext()) {
+            if (n == r.length) r = Arrays.copyOf(r, n * 2);
+            r[n++] = of.readLong(in);
+        }
+        in._in.endArray();
+        return n == r.length ? r : Arrays.copyOf(r, n);
+    }
+
+    @Override
+    public float[] readFloats(Fields context, String field, JasonLib.Serializer.FloatReader<Input> of) throws IOException {
+        Input in = context.require(field);
+        float[] r = new float[16];
+        int n = 0;
+        in._in.beginArray();
+        while (in._in.hasNext()) {
+            if (n == r.length) r = Arrays.copyOf(r, n * 2);
+            r[n++] = of.readFloat(in);
+        }
+        in._in.endArray();
+        return n == r.length ? r : Arrays.copyOf(r, n);
+    }
+
+    @Override
+    public double[] readDoubles(Fields context, String field, JasonLib.Serializer.DoubleReader<Input> of) throws IOException {
+        Input in = context.require(field);
+        double[] r = new double[16];
+        int n = 0;
+        in._in.beginArray();
+        while (in._in.hasNext()) {
+            if (n == r.length) r = Arrays.copyOf(r, n * 2);
+            r[n++] = of.readDouble(in);
+        }
+        in._in.endArray();
+        return n == r.length ? r : Arrays.copyOf(r, n);
+    }
+
+    private static void skip(Fields context, String field) throws IOException {
+        Input in = context.seek(field);
+        if (in != null) in._in.skipValue();
+    }
+
+    @Override
+    public void skipPrimitive(Fields context, String field, JasonLib.Serializer.Reader<Input, ?> as) throws IOException {
+        skip(context, field);
+    }
+
+    @Override
+    public void skipOptional(Fields context, String field, JasonLib.Serializer.Reader<Input, ?> of) throws IOException {
+        skip(context, field);
+    }
+
+    @Override
+    public void skipList(Fields context, String field, JasonLib.Serializer.Reader<Input, ?> of) throws IOException {
+        skip(context, field);
+    }
+
+    @Override
+    public void skipMap(Fields context, String field, JasonLib.Serializer.Reader<Input, ?> rkey, JasonLib.Serializer.Reader<Input, ?> rvalue) throws IOException {
+        skip(context, field);
+    }
+
+    @Override
+    public JasonLib.Serializer.BooleanWriter<JsonWriter> booleanWriter() throws IOException {
+        return _booleanWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.IntWriter<JsonWriter> integerWriter() throws IOException {
+        return _integerWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.LongWriter<JsonWriter> longWriter() throws IOException {
+        return _longWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.FloatWriter<JsonWriter> floatWriter() throws IOException {
+        return _floatWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.DoubleWriter<JsonWriter> doubleWriter() throws IOException {
+        return _doubleWriter;
+    }
+
+    @Override
+    public JasonLib.Serializer.Writer<JsonWriter, String> stringWriter() throws IOException {
+        return _stringWriter;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends JasonLib.Serializable> JasonLib.Serializer.Writer<JsonWriter, T> serializableWriter() throws IOException {
+        return (JasonLib.Serializer.Writer<JsonWriter, T>)_serializableWriter;
+    }
+
+    @Override
+    public JsonWriter writeBoolean(JsonWriter context, String field, JasonLib.Serializer.BooleanWriter<JsonWriter> as, boolean value) throws IOException {
+        return as.writeBoolean(context.name(field), value);
+    }
+
+    @Override
+    public JsonWriter writeInt(JsonWriter context, String field, JasonLib.Serializer.IntWriter<JsonWriter> as, int value) throws IOException {
+        return as.writeInt(context.name(field), value);
+    }
+
+    @Override
+    public JsonWriter writeLong(JsonWriter context, String field, JasonLib.Serializer.LongWriter<JsonWriter> as, long value) throws IOException {
+        return as.writeLong(context.name(field), value);
+    }
+
+    @Override
+    public JsonWriter writeFloat(JsonWriter context, String field, JasonLib.Serializer.FloatWriter<JsonWriter> as, float value) throws IOException {
+        return as.writeFloat(context.name(field), value);
+    }
+
+    @Override
+    public JsonWriter writeDouble(JsonWriter context, String field, JasonLib.Serializer.DoubleWriter<JsonWriter> as, double value) throws IOException {
+        return as.writeDouble(context.name(field), value);
+    }
+
+    @Override
+    public <T> JsonWriter writePrimitive(JsonWriter context, String field, JasonLib.Serializer.Writer<JsonWriter, T> as, T value) throws IOException {
+        return as.write(context.name(field), value);
+    }
+
+    @Override
+    public <T> JsonWriter writeOptional(JsonWriter context, String field, JasonLib.Serializer.Writer<JsonWriter, T> of, Optional<T> value) throws IOException {
+        ifPresentE(value, (t) -> of.write(context.name(field), t));
+        return context;
+    }
+
+    @Override
+    public <T> JsonWriter writeList(JsonWriter context, String field, JasonLib.Serializer.Writer<JsonWriter, T> of, List<T> value) throws IOException {
+        context.name(field).beginArray();
+        for (T t : value) of.write(context, t);
+        return context.endArray();
+    }
+
+    @Override
+    public <T, U> JsonWriter writeMap(JsonWriter context, String field, JasonLib.Serializer.Writer<JsonWriter, T> wkey, JasonLib.Serializer.Writer<JsonWriter, U> wvalue, Map<T, U> value) throws IOException {
+        context.name(field).beginObject();
+        try {
+            for (Map.Entry<T, U> e : value.entrySet())
+                wvalue.write(context.name((String)e.getKey()), e.getValue());
+        } catch (ClassCastException e) {
+            throw new IOException("json maps must have string keys");
+        }
+        return context.endObject();
+    }
+
+    @Override
+    public JsonWriter writeInts(JsonWriter context, String field, JasonLib.Serializer.IntWriter<JsonWriter> of, int[] value) throws IOException {
+        context.name(field).beginArray();
+        for (int v : value) of.writeInt(context, v);
+        return context.endArray();
+    }
+
+    @Override
+    public JsonWriter writeLongs(JsonWriter context, String field, JasonLib.Serializer.LongWriter<JsonWriter> of, long[] value) throws IOException {
+        context.name(field).beginArray();
+        for (long v : value) of.writeLong(context, v);
+        return context.endArray();
+    }
+
+    @Override
+    public JsonWriter writeFloats(JsonWriter context, String field, JasonLib.Serializer.FloatWriter<JsonWriter> of, float[] value) throws IOException {
+        context.name(field).beginArray();
+        for (float v : value) of.writeFloat(context, v);
+        return context.endArray();
+    }
+
+    @Override
+    public JsonWriter writeDoubles(JsonWriter context, String field, JasonLib.Serializer.DoubleWriter<JsonWriter> of, double[] value) throws IOException {
+        context.name(field).beginArray();
+        for (double v : value) of.writeDouble(context, v);
+        return context.endArray();
+    }
+}
@@ -0,0 +1,281 @@
+package com.github.mortimersmith.jason.json;
+
+import java.math.BigInteger;
+
+/**
+ * Writes a finite double or float as the shortest decimal that reads back to the same value,
+ * straight into a byte array.
+ *
+ * This is Giulietti's Schubfach algorithm, which picks the same decimal as
+ * {@link Double#toString(double)} does from Java 19 on; earlier versions sometimes give a digit
+ * or two more than needed. The layout is the same too: plain notation with at least one
+ * fractional digit for magnitudes in [10^-3, 10^7), computerized scientific notation otherwise.
+ */
+final class ShortestDecimal
+{
+    /** Room for the longest result: sign, 17 digits, point, {@code E} and a signed exponent. */
+    static final int MAX_LENGTH = 26;
+
+    private static final int K_MIN = -324;
+    private static final int K_MAX = 292;
+    private static final long MASK_32 = 0xffffffffL;
+    private static final long MASK_63 = 0x7fffffffffffffffL;
+
+    /**
+     * For each k, 10^-k as floor(10^-k 2^-r) + 1 for the r that puts it in [2^125, 2^126), split
+     * into its upper and lower 63 bits.
+     */
+    private static final long[] G = new long[2 * (K_MAX - K_MIN + 1)];
+    static {
+        for (int k = K_MIN; k <= K_MAX; ++k) {
+            int r = flog2pow10(-k) - 125;
+            BigInteger g = k <= 0
+                ? BigInteger.TEN.pow(-k).shiftLeft(-r)
+                : BigInteger.ONE.shiftLeft(-r).divide(BigInteger.TEN.pow(k));
+            g = g.add(BigInteger.ONE);
+            G[2 * (k - K_MIN)] = g.shiftRight(63).longValue();
+            G[2 * (k - K_MIN) + 1] = g.longValue() & MASK_63;
+        }
+    }
+
+    private ShortestDecimal() {}
+
+    /**
+     * Writes {@code v} at {@code at}, which must have {@link #MAX_LENGTH} bytes of room, and
+     * returns the index after it.
+     */
+    static int put(byte[] b, int at, double v)
+    {
+        long bits = Double.doubleToRawLongBits(v);
+        if (bits < 0) b[at++] = '-';
+        long t = bits & (1L << 52) - 1;
+        int bq = (int)(bits >>> 52) & 0x7ff;
+        if (bq != 0) {
+            int mq = 1075 - bq;
+            long c = 1L << 52 | t;
+            if (0 < mq && mq < 53 && c >> mq << mq == c) return put(b, at, c >> mq, 0);
+            return toDecimal(b, at, -mq, c, 0);
+        }
+        if (t != 0) return t < 3 ? toDecimal(b, at, -1074, 10 * t, -1) : toDecimal(b, at, -1074, t, 0);
+        return zero(b, at);
+    }
+
+    /**
+     * As above, for a float.
+     */
+    static int put(byte[] b, int at, float v)
+    {
+        int bits = Float.floatToRawIntBits(v);
+        if (bits < 0) b[at++] = '-';
+        int t = bits & (1 << 23) - 1;
+        int bq = bits >>> 23 & 0xff;
+        if (bq != 0) {
+            int mq = 150 - bq;
+            int c = 1 << 23 | t;
+            if (0 < mq && mq < 24 && c >> mq << mq == c) return put(b, at, c >> mq, 0);
+            return toDecimal(b, at, -mq, c, 0);
+        }
+        if (t != 0) return t < 8 ? toDecimal(b, at, -149, 10 * t, -1) : toDecimal(b, at, -149, t, 0);
+        return zero(b, at);
+    }
+
+    /**
+     * Picks the decimal for c 2^q; dk corrects the exponent when a tiny subnormal's c was scaled
+     * by ten for precision.
+     */
+    private static int toDecimal(byte[] b, int at, int q, long c, int dk)
+    {
+        int out = (int)c & 1;
+        long cb = c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        if (c != 1L << 52 || q == -1074) {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        } else {
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        int h = q + flog2pow10(-k) + 2;
+        long g1 = G[2 * (k - K_MIN)];
+        long g0 = G[2 * (k - K_MIN) + 1];
+
+        long vb = rop(g1, g0, cb << h);
+        long vbl = rop(g1, g0, cbl << h);
+        long vbr = rop(g1, g0, cbr << h);
+
+        long s = vb >> 2;
+        if (s >= 100) {
+            long sp10 = s / 10 * 10;
+            long tp10 = sp10 + 10;
+            boolean upin = vbl + out <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin) return put(b, at, upin ? sp10 : tp10, k);
+        }
+        long t = s + 1;
+        boolean uin = vbl + out <= s << 2;
+        boolean win = (t << 2) + out <= vbr;
+        if (uin != win) return put(b, at, uin ? s : t, k + dk);
+        long cmp = vb - (s + t << 1);
+        return put(b, at, cmp < 0 || cmp == 0 && (s & 1) == 0 ? s : t, k + dk);
+    }
+
+    private static int toDecimal(byte[] b, int at, int q, int c, int dk)
+    {
+        int out = c & 1;
+        long cb = (long)c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        if (c != 1 << 23 || q == -149) {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        } else {
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        int h = q + flog2pow10(-k) + 33;
+        long g = G[2 * (k - K_MIN)] + 1;
+
+        int vb = rop(g, cb << h);
+        int vbl = rop(g, cbl << h);
+        int vbr = rop(g, cbr << h);
+
+        int s = vb >> 2;
+        if (s >= 100) {
+            int sp10 = s / 10 * 10;
+            int tp10 = sp10 + 10;
+            boolean upin = vbl + out <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin) return put(b, at, upin ? sp10 : tp10, k);
+        }
+        int t = s + 1;
+        boolean uin = vbl + out <= s << 2;
+        boolean win = (t << 2) + out <= vbr;
+        if (uin != win) return put(b, at, uin ? s : t, k + dk);
+        int cmp = vb - (s + t << 1);
+        return put(b, at, cmp < 0 || cmp == 0 && (s & 1) == 0 ? s : t, k + dk);
+    }
+
+    /**
+     * g cp / 2^127 for g = g1 2^63 + g0, rounded to odd.
+     */
+    private static long rop(long g1, long g0, long cp)
+    {
+        long x1 = multiplyHigh(g0, cp);
+        long y0 = g1 * cp;
+        long y1 = multiplyHigh(g1, cp);
+        long z = (y0 >>> 1) + x1;
+        long vbp = y1 + (z >>> 63);
+        return vbp | (z & MASK_63) + MASK_63 >>> 63;
+    }
+
+    /**
+     * g cp / 2^95, rounded to odd.
+     */
+    private static int rop(long g, long cp)
+    {
+        long x1 = multiplyHigh(g, cp);
+        long vbp = x1 >>> 31;
+        return (int)(vbp | (x1 & MASK_32) + MASK_32 >>> 32);
+    }
+
+    /**
+     * The upper 64 bits of the 128-bit product, as {@code Math.multiplyHigh} does from Java 9 on.
+     */
+    private static long multiplyHigh(long x, long y)
+    {
+        long x1 = x >> 32;
+        long x2 = x & MASK_32;
+        long y1 = y >> 32;
+        long y2 = y & MASK_32;
+        long z2 = x2 * y2;
+        long t = x1 * y2 + (z2 >>> 32);
+        long z1 = (t & MASK_32) + x2 * y1;
+        return x1 * y1 + (t >> 32) + (z1 >> 32);
+    }
+
+    /** floor(e log10 2) */
+    private static int flog10pow2(int e)
+    {
+        return (int)(e * 661971961083L >> 41);
+    }
+
+    /** floor(e log10 2 + log10 3/4) */
+    private static int flog10threeQuartersPow2(int e)
+    {
+        return (int)(e * 661971961083L + -274743187321L >> 41);
+    }
+
+    /** floor(e log2 10) */
+    private static int flog2pow10(int e)
+    {
+        return (int)(e * 913124641741L >> 38);
+    }
+
+    private static int zero(byte[] b, int at)
+    {
+        b[at++] = '0';
+        b[at++] = '.';
+        b[at++] = '0';
+        return at;
+    }
+
+    /**
+     * Lays out f 10^e, for f > 0, the way {@link Double#toString(double)} does.
+     */
+    private static int put(byte[] b, int at, long f, int e)
+    {
+        while (f % 10 == 0) {
+            f /= 10;
+            ++e;
+        }
+        int n = 1;
+        for (long p = 10; n < 19 && f >= p; p *= 10) ++n;
+        int exponent = e + n - 1;
+        if (0 <= exponent && exponent < 7) {
+            int point = at + exponent + 1;
+            if (n <= exponent + 1) {
+                digits(b, at, f, n);
+                for (int i = at + n; i < point; ++i) b[i] = '0';
+                b[point] = '.';
+                b[point + 1] = '0';
+                return point + 2;
+            }
+            digits(b, at, f, n + 1);
+            System.arraycopy(b, at + 1, b, at, point - at);
+            b[point] = '.';
+            return at + n + 1;
+        }
+        if (-3 <= exponent && exponent < 0) {
+            b[at++] = '0';
+            b[at++] = '.';
+            for (int i = -1; i > exponent; --i) b[at++] = '0';
+            digits(b, at, f, n);
+            return at + n;
+        }
+        digits(b, at, f, n + 1);
+        b[at] = b[at + 1];
+        b[at + 1] = '.';
+        at += n + 1;
+        if (n == 1) b[at++] = '0';
+        b[at++] = 'E';
+        if (exponent < 0) {
+            b[at++] = '-';
+            exponent = -exponent;
+        }
+        if (exponent >= 100) b[at++] = (byte)('0' + exponent / 100);
+        if (exponent >= 10) b[at++] = (byte)('0' + exponent / 10 % 10);
+        b[at++] = (byte)('0' + exponent % 10);
+        return at;
+    }
+
+    /**
+     * Writes the n digits of f so they end at {@code at + length}.
+     */
+    private static void digits(byte[] b, int at, long f, int length)
+    {
+        for (int i = at + length; f > 0; f /= 10) b[--i] = (byte)('0' + f % 10);
+    }
+}
@@ -5,12 +5,14 @@ import static com.github.mortimersmith.utils.Utils.ifPresentE;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
 import org.msgpack.packer.Packer;
+import org.msgpack.unpacker.BufferUnpacker;
 import org.msgpack.unpacker.Unpacker;
 
 public class MessagePack implements JasonLib.Serializer<Unpacker, Packer, Unpacker, Packer>
@@ -19,6 +21,54 @@ public class MessagePack implements JasonLib.Serializer<Unpacker, Packer, Unpack
 
     private static final org.msgpack.MessagePack _mp = new org.msgpack.MessagePack();
 
+    /**
+     * Counts are read from the input before their elements, so collections are presized to at
+     * most this many; larger ones grow as the elements arrive.
+     */
+    private static final int MAX_PRESIZE = 4096;
+
+    private static final ThreadLocal<Session> _sessions = ThreadLocal.withInitial(() -> new Session(null));
+
+    private final JasonLib.CollectionFactory _collections;
+    private final JasonLib.StringCache _strings;
+    private final JasonLib.ReaderCache<Unpacker> _readers = new JasonLib.ReaderCache<>();
+    private final JasonLib.Serializer.BooleanReader<Unpacker> _booleanReader = (u) -> u.readBoolean();
+    private final JasonLib.Serializer.IntReader<Unpacker> _integerReader = (u) -> u.readInt();
+    private final JasonLib.Serializer.LongReader<Unpacker> _longReader = (u) -> u.readLong();
+    private final JasonLib.Serializer.FloatReader<Unpacker> _floatReader = (u) -> u.readFloat();
+    private final JasonLib.Serializer.DoubleReader<Unpacker> _doubleReader = (u) -> u.readDouble();
+    private final JasonLib.Serializer.Reader<Unpacker, String> _stringReader = (u) -> string(u.readString());
+    private final JasonLib.Serializer.BooleanWriter<Packer> _booleanWriter = (p, value) -> p.write(value);
+    private final JasonLib.Serializer.IntWriter<Packer> _integerWriter = (p, value) -> p.write(value);
+    private final JasonLib.Serializer.LongWriter<Packer> _longWriter = (p, value) -> p.write(value);
+    private final JasonLib.Serializer.FloatWriter<Packer> _floatWriter = (p, value) -> p.write(value);
+    private final JasonLib.Serializer.DoubleWriter<Packer> _doubleWriter = (p, value) -> p.write(value);
+    private final JasonLib.Serializer.Writer<Packer, String> _stringWriter = (p, value) -> p.write(value);
+    private final JasonLib.Serializer.Writer<Packer, JasonLib.Serializable> _serializableWriter = (p, value) -> value.serialize(MessagePack.this, p);
+
+    public MessagePack() {
+        this(JasonLib.CollectionFactory.DEFAULT);
+    }
+
+    /**
+     * A serializer that reads lists and maps into collections made by {@code collections}.
+     */
+    public MessagePack(JasonLib.CollectionFactory collections) {
+        this(collections, null);
+    }
+
+    /**
+     * As above, also looking up the strings it reads in {@code strings}, if not null.
+     */
+    public MessagePack(JasonLib.CollectionFactory collections, JasonLib.StringCache strings) {
+        _collections = collections;
+        _strings = strings;
+    }
+
+    private String string(String s) {
+        return _strings == null ? s : _strings.intern(s);
+    }
+
     public static <T extends JasonLib.Serializable> void wrap(T t, OutputStream out) throws IOException
     {
         t.serialize(INSTANCE, _mp.createPacker(out));
@@ -29,39 +79,226 @@ public class MessagePack implements JasonLib.Serializer<Unpacker, Packer, Unpack
         return from.get(INSTANCE, _mp.createUnpacker(in));
     }
 
+    /**
+     * Returns the calling thread's session.
+     */
+    public static Session session()
+    {
+        return _sessions.get();
+    }
+
+    /**
+     * A packer and unpacker, and the buffers behind them, reused across many messages.
+     *
+     * Not thread-safe: use one per thread, through {@link MessagePack#session()}, or borrow
+     * one from a {@link Pool}. Every {@code wrap} appends to the session's buffer until
+     * {@link #reset()}; the {@code wrap} overloads that hand the bytes on reset before they start.
+     */
+    public static class Session implements AutoCloseable
+    {
+        private static final int INITIAL_CAPACITY = 4096;
+        private static final int RETAINED_CAPACITY = 1 << 20;
+
+        private final Output _out = new Output(INITIAL_CAPACITY);
+        private final Packer _packer = _mp.createPacker(_out);
+        private final BufferUnpacker _unpacker = _mp.createBufferUnpacker();
+        private final Pool _pool;
+
+        private Session(Pool pool) {
+            _pool = pool;
+        }
+
+        public <T extends JasonLib.Serializable> Session append(T t) throws IOException {
+            t.serialize(INSTANCE, _packer);
+            return this;
+        }
+
+        public <T extends JasonLib.Serializable> byte[] wrap(T t) throws IOException {
+            reset();
+            append(t);
+            return toByteArray();
+        }
+
+        public <T extends JasonLib.Serializable> void wrap(T t, OutputStream out) throws IOException {
+            reset();
+            append(t);
+            writeTo(out);
+        }
+
+        public <T extends JasonLib.Serializable> T unwrap(byte[] in, JasonLib.From<T> from) throws IOException {
+            return unwrap(in, 0, in.length, from);
+        }
+
+        public <T extends JasonLib.Serializable> T unwrap(byte[] in, int offset, int length, JasonLib.From<T> from) throws IOException {
+            try {
+                return from.get(INSTANCE, _unpacker.wrap(in, offset, length));
+            } finally {
+                _unpacker.clear();
+            }
+        }
+
+        public <T extends JasonLib.Serializable> T unwrap(ByteBuffer in, JasonLib.From<T> from) throws IOException {
+            try {
+                return from.get(INSTANCE, _unpacker.wrap(in));
+            } finally {
+                _unpacker.clear();
+            }
+        }
+
+        public int size() {
+            return _out._count;
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(_out._bytes, _out._count);
+        }
+
+        public ByteBuffer buffer() {
+            return ByteBuffer.wrap(_out._bytes, 0, _out._count);
+        }
+
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(_out._bytes, 0, _out._count);
+        }
+
+        /**
+         * Discards everything written so far. A buffer that grew past {@value #RETAINED_CAPACITY}
+         * bytes for an unusually large message is dropped rather than kept around.
+         */
+        public Session reset() {
+            _out._count = 0;
+            if (_out._bytes.length > RETAINED_CAPACITY) _out._bytes = new byte[INITIAL_CAPACITY];
+            _unpacker.clear();
+            return this;
+        }
+
+        /**
+         * Returns a pooled session to its pool; does nothing for a thread's own session.
+         */
+        @Override
+        public void close() {
+            if (_pool != null) _pool.release(this);
+        }
+    }
+
+    /**
+     * A bounded, thread-safe pool of sessions. Sessions borrowed while the pool is empty are
+     * created on demand; those returned while it is full are dropped.
+     */
+    public static class Pool
+    {
+        private final ArrayBlockingQueue<Session> _idle;
+
+        public Pool(int capacity) {
+            _idle = new ArrayBlockingQueue<>(capacity);
+        }
+
+        public Session acquire() {
+            Session s = _idle.poll();
+            return s != null ? s : new Session(this);
+        }
+
+        private void release(Session s) {
+            _idle.offer(s.reset());
+        }
+    }
+
+    private static class Output extends OutputStream
+    {
+        private byte[] _bytes;
+        private int _count;
+
+        private Output(int capacity) {
+            _bytes = new byte[capacity];
+        }
+
+        private void ensure(int n) {
+            if (_count + n > _bytes.length)
+                _bytes = Arrays.copyOf(_bytes, Math.max(_bytes.length * 2, _count + n));
+        }
+
+        @Override
+        public void write(int b) {
+            ensure(1);
+            _bytes[_count++] = (byte)b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensure(len);
+            System.arraycopy(b, off, _bytes, _count, len);
+            _count += len;
+        }
+    }
+
     @Override
     public Unpacker childContext(Unpacker context) {
         return context;
     }
 
     @Override
-    public JasonLib.Serializer.Reader<Unpacker, Boolean> booleanReader() throws IOException {
-        return (u) -> u.readBoolean();
+    public JasonLib.Serializer.BooleanReader<Unpacker> booleanReader() throws IOException {
+        return _booleanReader;
     }
 
     @Override
-    public JasonLib.Serializer.Reader<Unpacker, Integer> integerReader() throws IOException {
-        return (u) -> u.readInt();
+    public JasonLib.Serializer.IntReader<Unpacker> integerReader() throws IOException {
+        return _integerReader;
     }
 
     @Override
-    public JasonLib.Serializer.Reader<Unpacker, Long> longReader() throws IOException {
-        return (u) -> u.readLong();
+    public JasonLib.Serializer.LongReader<Unpacker> longReader() throws IOException {
+        return _longReader;
     }
 
     @Override
-    public JasonLib.Serializer.Reader<Unpacker, Float> floatReader() throws IOException {
-        return (u) -> u.readFloat();
+    public JasonLib.Serializer.FloatReader<Unpacker> floatReader() throws IOException {
+        return _floatReader;
     }
 
     @Override
-    public JasonLib.Serializer.Reader<Unpacker, Double> doubleReader() throws IOException {
-        return (u) -> u.readDouble();
+    public JasonLib.Serializer.DoubleReader<Unpacker> doubleReader() throws IOException {
+        return _doubleReader;
     }
 
     @Override
     public JasonLib.Serializer.Reader<Unpacker, String> stringReader() throws IOException {
-        return (u) -> u.readString();
+        return _stringReader;
+    }
+
+    @Override
+    public <T extends JasonLib.Serializable> JasonLib.Serializer.Reader<Unpacker, T> serializableReader(Class<T> type, JasonLib.Serializer.ReaderFactory<T> factory) throws IOException {
+        return _readers.get(this, type, factory);
+    }
+
+    @Override
+    public <T> JasonLib.Serializer.Reader<Unpacker, T> cachedReader(Object key, JasonLib.Serializer.ReaderFactory<T> factory) throws IOException {
+        return _readers.get(this, key, factory);
+    }
+
+    @Override
+    public boolean readBoolean(Unpacker context, String field, JasonLib.Serializer.BooleanReader<Unpacker> as) throws IOException {
+        return as.readBoolean(context);
+    }
+
+    @Override
+    public int readInt(Unpacker context, String field, JasonLib.Serializer.IntReader<Unpacker> as) throws IOException {
+        return as.readInt(context);
+    }
+
+    @Override
+    public long readLong(Unpacker context, String field, JasonLib.Serializer.LongReader<Unpacker> as) throws IOException {
+        return as.readLong(context);
+    }
+
+    @Override
+    public float readFloat(Unpacker context, String field, JasonLib.Serializer.FloatReader<Unpacker> as) throws IOException {
+        return as.readFloat(context);
+    }
+
+    @Override
+    public double readDouble(Unpacker context, String field, JasonLib.Serializer.DoubleReader<Unpacker> as) throws IOException {
+        return as.readDouble(context);
     }
 
     @Override
@@ -78,55 +315,176 @@ public class MessagePack implements JasonLib.Serializer<Unpacker, Packer, Unpack
             ;
     }
 
-    @Override
-    public <T> List<T> readList(Unpacker context, String field, JasonLib.Serializer.Reader<Unpacker, T> of) throws IOException {
+    /**
+     * A list or map length, which sizes nothing up front beyond {@code MAX_PRESIZE}, so a bogus
+     * one fails when the values run out rather than by exhausting memory.
+     */
+    private static int count(Unpacker context) throws IOException {
         int len = context.readInt();
-        List<T> l = new LinkedList<>();
+        if (len < 0) throw new IOException("invalid length: " + len);
+        return len;
+    }
+
+    @Override
+    public <T> List<T> readList(Unpacker context, String field, JasonLib.Serializer.Reader<Unpacker, T> of, List<T> into) throws IOException {
+        int len = count(context);
+        JasonLib.CollectionFactory.ListBuilder<T> l = _collections.list(Math.min(len, MAX_PRESIZE), into);
         for (int i = 0; i < len; ++i) l.add(of.read(context));
-        return l;
+        return l.build();
     }
 
     @Override
-    public <T, U> Map<T, U> readMap(Unpacker context, String field, JasonLib.Serializer.Reader<Unpacker, T> rkey, JasonLib.Serializer.Reader<Unpacker, U> rvalue) throws IOException {
-        int len = context.readInt();
-        Map<T, U> m = new HashMap<>();
+    public <T, U> Map<T, U> readMap(Unpacker context, String field, JasonLib.Serializer.Reader<Unpacker, T> rkey, JasonLib.Serializer.Reader<Unpacker, U> rvalue, Map<T, U> into) throws IOException {
+        int len = count(context);
+        JasonLib.CollectionFactory.MapBuilder<T, U> m = _collections.map(Math.min(len, MAX_PRESIZE), into);
         for (int i = 0; i < len; ++i) m.put(rkey.read(context), rvalue.read(context));
-        return m;
+        return m.build();
+    }
+
+    @Override
+    public int[] readInts(Unpacker context, String field, JasonLib.Serializer.IntReader<Unpacker> of) throws IOException {
+        int len = count(context);
+        int[] r = new int[Math.min(len, MAX_PRESIZE)];
+        for (int i = 0; i < len; ++i) {
+            if (i == r.length) r = Arrays.copyOf(r, Math.min(len, i * 2));
+            r[i] = of.readInt(context);
+        }
+        return r;
+    }
+
+    @Override
+    public long[] readLongs(Unpacker context, String field, JasonLib.Serializer.LongReader<Unpacker> of) throws IOException {
+        int len = count(context);
+        long[] r = new long[Math.min(len, MAX_PRESIZE)];
+        for (int i = 0; i < len; ++i) {
+            if (i == r.length) r = Arrays.copyOf(r, Math.min(len, i * 2));
+            r[i] = of.readLong(context);
+        }
+        return r;
+    }
+
+    @Override
+    public float[] readFloats(Unpacker context, String field, JasonLib.Serializer.FloatReader<Unpacker> of) throws IOException {
+        int len = count(context);
+        float[] r = new float[Math.min(len, MAX_PRESIZE)];
+        for (int i = 0; i < len; ++i) {
+            if (i == r.length) r = Arrays.copyOf(r, Math.min(len, i * 2));
+            r[i] = of.readFloat(context);
+        }
+        return r;
+    }
+
+    @Override
+    public double[] readDoubles(Unpacker context, String field, JasonLib.Serializer.DoubleReader<Unpacker> of) throws IOException {
+        int len = count(context);
+        double[] r = new double[Math.min(len, MAX_PRESIZE)];
+        for (int i = 0; i < len; ++i) {
+            if (i == r.length) r = Arrays.copyOf(r, Math.min(len, i * 2));
+            r[i] = of.readDouble(context);
+        }
+        return r;
+    }
+
+    /**
+     * Scalars and strings are a single MessagePack value; anything else is a generated type,
+     * whose members follow one another, so it is handed to its reader.
+     */
+    private void skipValue(Unpacker context, JasonLib.Serializer.Reader<Unpacker, ?> as) throws IOException {
+        if (as == _booleanReader || as == _integerReader || as == _longReader || as == _floatReader || as == _doubleReader || as == _stringReader)
+            context.skip();
+        else
+            as.read(context);
+    }
+
+    @Override
+    public void skipPrimitive(Unpacker context, String field, JasonLib.Serializer.Reader<Unpacker, ?> as) throws IOException {
+        skipValue(context, as);
+    }
+
+    @Override
+    public void skipOptional(Unpacker context, String field, JasonLib.Serializer.Reader<Unpacker, ?> of) throws IOException {
+        if (context.readBoolean()) skipValue(context, of);
+    }
+
+    @Override
+    public void skipList(Unpacker context, String field, JasonLib.Serializer.Reader<Unpacker, ?> of) throws IOException {
+        int len = count(context);
+        for (int i = 0; i < len; ++i) skipValue(context, of);
+    }
+
+    @Override
+    public void skipMap(Unpacker context, String field, JasonLib.Serializer.Reader<Unpacker, ?> rkey, JasonLib.Serializer.Reader<Unpacker, ?> rvalue) throws IOException {
+        int len = count(context);
+        for (int i = 0; i < len; ++i) {
+            skipValue(context, rkey);
+            skipValue(context, rvalue);
+        }
     }
 
     @Override
-    public JasonLib.Serializer.Writer<Packer, Boolean> booleanWriter() throws IOException {
-        return (p, value) -> p.write(value);
+    public JasonLib.Serializer.BooleanWriter<Packer> booleanWriter() throws IOException {
+        return _booleanWriter;
     }
 
     @Override
-    public JasonLib.Serializer.Writer<Packer, Integer> integerWriter() throws IOException {
-        return (p, value) -> p.write(value);
+    public JasonLib.Serializer.IntWriter<Packer> integerWriter() throws IOException {
+        return _integerWriter;
     }
 
     @Override
-    public JasonLib.Serializer.Writer<Packer, Long> longWriter() throws IOException {
-        return (p, value) -> p.write(value);
+    public JasonLib.Serializer.LongWriter<Packer> longWriter() throws IOException {
+        return _longWriter;
     }
 
     @Override
-    public JasonLib.Serializer.Writer<Packer, Float> floatWriter() throws IOException {
-        return (p, value) -> p.write(value);
+    public JasonLib.Serializer.FloatWriter<Packer> floatWriter() throws IOException {
+        return _floatWriter;
     }
 
     @Override
-    public JasonLib.Serializer.Writer<Packer, Double> doubleWriter() throws IOException {
-        return (p, value) -> p.write(value);
+    public JasonLib.Serializer.DoubleWriter<Packer> doubleWriter() throws IOException {
+        return _doubleWriter;
     }
 
     @Override
     public JasonLib.Serializer.Writer<Packer, String> stringWriter() throws IOException {
-        return (p, value) -> p.write(value);
+        return _stringWriter;
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T extends JasonLib.Serializable> JasonLib.Serializer.Writer<Packer, T> serializableWriter() throws IOException {
-        return (p, value) -> value.serialize(MessagePack.this, p);
+        return (JasonLib.Serializer.Writer<Packer, T>)_serializableWriter;
+    }
+
+    @Override
+    public Packer writeBoolean(Packer context, String field, JasonLib.Serializer.BooleanWriter<Packer> as, boolean value) throws IOException {
+        as.writeBoolean(context, value);
+        return context;
+    }
+
+    @Override
+    public Packer writeInt(Packer context, String field, JasonLib.Serializer.IntWriter<Packer> as, int value) throws IOException {
+        as.writeInt(context, value);
+        return context;
+    }
+
+    @Override
+    public Packer writeLong(Packer context, String field, JasonLib.Serializer.LongWriter<Packer> as, long value) throws IOException {
+        as.writeLong(context, value);
+        return context;
+    }
+
+    @Override
+    public Packer writeFloat(Packer context, String field, JasonLib.Serializer.FloatWriter<Packer> as, float value) throws IOException {
+        as.writeFloat(context, value);
+        return context;
+    }
+
+    @Override
+    public Packer writeDouble(Packer context, String field, JasonLib.Serializer.DoubleWriter<Packer> as, double value) throws IOException {
+        as.writeDouble(context, value);
+        return context;
     }
 
     @Override
@@ -158,4 +516,32 @@ public class MessagePack implements JasonLib.Serializer<Unpacker, Packer, Unpack
         }
         return context;
     }
+
+    @Override
+    public Packer writeInts(Packer context, String field, JasonLib.Serializer.IntWriter<Packer> of, int[] value) throws IOException {
+        context.write(value.length);
+        for (int v : value) of.writeInt(context, v);
+        return context;
+    }
+
+    @Override
+    public Packer writeLongs(Packer context, String field, JasonLib.Serializer.LongWriter<Packer> of, long[] value) throws IOException {
+        context.write(value.length);
+        for (long v : value) of.writeLong(context, v);
+        return context;
+    }
+
+    @Override
+    public Packer writeFloats(Packer context, String field, JasonLib.Serializer.FloatWriter<Packer> of, float[] value) throws IOException {
+        context.write(value.length);
+        for (float v : value) of.writeFloat(context, v);
+        return context;
+    }
+
+    @Override
+    public Packer writeDoubles(Packer context, String field, JasonLib.Serializer.DoubleWriter<Packer> of, double[] value) throws IOException {
+        context.write(value.length);
+        for (double v : value) of.writeDouble(context, v);
+        return context;
+    }
 }
@@ -0,0 +1,149 @@
+package com.github.mortimersmith.jason.records;
+
+import com.github.mortimersmith.jason.JasonLib;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Encodes and decodes large batches of records on several threads, in the framing of
+ * {@link RecordWriter}.
+ *
+ * A batch is cut into a few contiguous runs of at least {@link #MIN_RUN} records, a handful per
+ * core, and each run is handled by one task, so the per-record cost is the same as on one thread.
+ * Encoded runs are stitched back together in order, so the output is byte for byte what a
+ * {@code RecordWriter} would write.
+ */
+public final class Batches
+{
+    public static final int MIN_RUN = 256;
+
+    private Batches()
+    {
+    }
+
+    private static int runs(int records)
+    {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(4 * cores, records / MIN_RUN));
+    }
+
+    public static <T extends JasonLib.Serializable> byte[] encode(List<? extends T> ts, Codec codec) throws IOException
+    {
+        return encode(ts, codec, ForkJoinPool.commonPool());
+    }
+
+    public static <T extends JasonLib.Serializable> byte[] encode(List<? extends T> ts, Codec codec, Executor executor) throws IOException
+    {
+        List<CompletableFuture<Bytes>> runs = encodeRuns(ts, codec, executor);
+        List<Bytes> done = new ArrayList<>(runs.size());
+        int total = 0;
+        for (CompletableFuture<Bytes> run : runs) {
+            Bytes b = join(run);
+            done.add(b);
+            total += b.count;
+        }
+        byte[] out = new byte[total];
+        int at = 0;
+        for (Bytes b : done) {
+            System.arraycopy(b.bytes, 0, out, at, b.count);
+            at += b.count;
+        }
+        return out;
+    }
+
+    /**
+     * Encodes the batch into {@code out}, writing each run as soon as it and those before it
+     * are done.
+     */
+    public static <T extends JasonLib.Serializable> void encode(List<? extends T> ts, Codec codec, Executor executor, OutputStream out) throws IOException
+    {
+        for (CompletableFuture<Bytes> run : encodeRuns(ts, codec, executor))
+            join(run).writeTo(out);
+    }
+
+    private static <T extends JasonLib.Serializable> List<CompletableFuture<Bytes>> encodeRuns(List<? extends T> ts, Codec codec, Executor executor)
+    {
+        int n = ts.size();
+        int runs = runs(n);
+        List<CompletableFuture<Bytes>> futures = new ArrayList<>(runs);
+        for (int r = 0; r < runs; ++r) {
+            List<? extends T> run = ts.subList((int)((long)n * r / runs), (int)((long)n * (r + 1) / runs));
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                Bytes b = new Bytes(4096);
+                try {
+                    for (T t : run) {
+                        int at = b.count;
+                        b.writeInt(0);
+                        codec.encode(t, b);
+                        Bytes.putInt(b.bytes, at, b.count - at - 4);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return b;
+            }, executor));
+        }
+        return futures;
+    }
+
+    public static <T extends JasonLib.Serializable> List<T> decode(byte[] in, Codec codec, JasonLib.From<T> from) throws IOException
+    {
+        return decode(in, 0, in.length, codec, from, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Decodes the records framed in {@code length} bytes at {@code offset}, in order. The frame
+     * headers are walked on the calling thread to find where each run starts.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends JasonLib.Serializable> List<T> decode(byte[] in, int offset, int length, Codec codec, JasonLib.From<T> from, Executor executor) throws IOException
+    {
+        int end = offset + length;
+        int[] at = new int[64];
+        int n = 0;
+        for (int p = offset; p < end; ) {
+            if (end - p < 4) throw new IOException("truncated record header");
+            int len = Bytes.getInt(in, p);
+            if (len < 0 || len > end - p - 4) throw new IOException("invalid record length: " + len);
+            if (n == at.length) at = Arrays.copyOf(at, n * 2);
+            at[n++] = p;
+            p += 4 + len;
+        }
+        Object[] out = new Object[n];
+        int[] starts = at;
+        int runs = runs(n);
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[runs];
+        for (int r = 0; r < runs; ++r) {
+            int first = (int)((long)n * r / runs);
+            int last = (int)((long)n * (r + 1) / runs);
+            futures[r] = CompletableFuture.runAsync(() -> {
+                try {
+                    for (int i = first; i < last; ++i)
+                        out[i] = codec.decode(in, starts[i] + 4, Bytes.getInt(in, starts[i]), from);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor);
+        }
+        join(CompletableFuture.allOf(futures));
+        return (List<T>)(List<?>)Arrays.asList(out);
+    }
+
+    private static <U> U join(CompletableFuture<U> f) throws IOException
+    {
+        try {
+            return f.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) throw ((UncheckedIOException)e.getCause()).getCause();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.github.mortimersmith.jason.records;
+
+import com.github.mortimersmith.jason.JasonLib;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a container written by {@link BlockWriter}.
+ *
+ * The index is loaded and checked on open: every block must lie before the index, and the
+ * blocks' first ids must start at zero and increase, staying below the record count. A read by
+ * id finds its block by binary search over the blocks' first ids and inflates only that block;
+ * the last block inflated is kept, so reads close together in id cost one inflation. Reads may
+ * run concurrently.
+ */
+public class BlockReader implements Closeable
+{
+    private final FileChannel _file;
+    private final Codec _codec;
+    private final long[] _offsets;
+    private final int[] _compressed;
+    private final int[] _uncompressed;
+    private final long[] _firsts;
+    private final long _count;
+    private volatile Block _last;
+
+    private BlockReader(FileChannel file, Codec codec, int blocks, long count)
+    {
+        _file = file;
+        _codec = codec;
+        _offsets = new long[blocks];
+        _compressed = new int[blocks];
+        _uncompressed = new int[blocks];
+        _firsts = new long[blocks];
+        _count = count;
+    }
+
+    public static BlockReader open(Path path, Codec codec) throws IOException
+    {
+        FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = file.size();
+            if (size < BlockWriter.TRAILER) throw new IOException("not a block container: " + path);
+            ByteBuffer trailer = read(file, size - BlockWriter.TRAILER, BlockWriter.TRAILER);
+            int blocks = trailer.getInt();
+            long count = trailer.getLong();
+            long index = trailer.getLong();
+            if (trailer.getInt() != BlockWriter.MAGIC || blocks < 0 || index < 0
+                || index + (long)blocks * BlockWriter.ENTRY != size - BlockWriter.TRAILER)
+                throw new IOException("not a block container: " + path);
+            if (count < 0 || blocks == 0 && count != 0) throw new IOException("not a block container: " + path);
+            BlockReader r = new BlockReader(file, codec, blocks, count);
+            ByteBuffer entries = read(file, index, blocks * BlockWriter.ENTRY);
+            for (int i = 0; i < blocks; ++i) {
+                long offset = r._offsets[i] = entries.getLong();
+                int compressed = r._compressed[i] = entries.getInt();
+                int uncompressed = r._uncompressed[i] = entries.getInt();
+                long first = r._firsts[i] = entries.getLong();
+                if (offset < 0 || compressed < 0 || uncompressed < 0 || offset + compressed > index
+                    || (i == 0 ? first != 0 : first <= r._firsts[i - 1]) || first >= count)
+                    throw new IOException("corrupt index entry " + i + ": " + path);
+            }
+            return r;
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private static ByteBuffer read(FileChannel file, long at, int length) throws IOException
+    {
+        ByteBuffer b = ByteBuffer.allocate(length);
+        while (b.hasRemaining()) {
+            if (file.read(b, at + b.position()) < 0) throw new EOFException("truncated block container");
+        }
+        b.flip();
+        return b;
+    }
+
+    /**
+     * One inflated block, with the offset of each record's frame in it.
+     */
+    private static final class Block
+    {
+        final int index;
+        final byte[] data;
+        final int[] frames;
+
+        Block(int index, byte[] data, int[] frames)
+        {
+            this.index = index;
+            this.data = data;
+            this.frames = frames;
+        }
+    }
+
+    private Block block(int i) throws IOException
+    {
+        Block last = _last;
+        if (last != null && last.index == i) return last;
+        ByteBuffer compressed = read(_file, _offsets[i], _compressed[i]);
+        byte[] data = new byte[_uncompressed[i]];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed.array(), 0, compressed.limit());
+            int n = 0;
+            while (n < data.length) {
+                int r = inflater.inflate(data, n, data.length - n);
+                if (r == 0 && (inflater.finished() || inflater.needsInput())) throw new IOException("truncated block " + i);
+                n += r;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("corrupt block " + i, e);
+        } finally {
+            inflater.end();
+        }
+        long end = i + 1 < _firsts.length ? _firsts[i + 1] : _count;
+        int[] frames = new int[(int)(end - _firsts[i])];
+        int at = 0;
+        for (int k = 0; k < frames.length; ++k) {
+            if (at + 4 > data.length) throw new IOException("corrupt block " + i);
+            int length = Bytes.getInt(data, at);
+            if (length < 0 || length > data.length - at - 4) throw new IOException("corrupt block " + i);
+            frames[k] = at;
+            at += 4 + length;
+        }
+        Block b = new Block(i, data, frames);
+        _last = b;
+        return b;
+    }
+
+    private <T extends JasonLib.Serializable> T decode(Block b, int k, JasonLib.From<T> from) throws IOException
+    {
+        int at = b.frames[k];
+        return _codec.decode(b.data, at + 4, Bytes.getInt(b.data, at), from);
+    }
+
+    /**
+     * Reads the record with the given id.
+     */
+    public <T extends JasonLib.Serializable> T get(long id, JasonLib.From<T> from) throws IOException
+    {
+        if (id < 0 || id >= _count) throw new IndexOutOfBoundsException("no record " + id);
+        int i = Arrays.binarySearch(_firsts, id);
+        if (i < 0) i = -i - 2;
+        Block b = block(i);
+        return decode(b, (int)(id - _firsts[i]), from);
+    }
+
+    /**
+     * Reads every record in id order, inflating each block once. A parallel stream inflates
+     * blocks on several threads.
+     */
+    public <T extends JasonLib.Serializable> Stream<T> scan(JasonLib.From<T> from)
+    {
+        return IntStream.range(0, _firsts.length).boxed().flatMap((i) -> {
+            try {
+                Block b = block(i);
+                return IntStream.range(0, b.frames.length).mapToObj((k) -> {
+                    try {
+                        return decode(b, k, from);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Number of records in the container.
+     */
+    public long size()
+    {
+        return _count;
+    }
+
+    public int blocks()
+    {
+        return _firsts.length;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        _file.close();
+    }
+}
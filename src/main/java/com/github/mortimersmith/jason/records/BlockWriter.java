@@ -0,0 +1,175 @@
+package com.github.mortimersmith.jason.records;
+
+import com.github.mortimersmith.jason.JasonLib;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+
+/**
+ * Writes records into a block-compressed container, read back by {@link BlockReader}.
+ *
+ * Records are framed as by {@link RecordWriter} and gathered into blocks of about
+ * {@code blockBytes}, and each block is compressed on its own with raw deflate. Blocks are
+ * compressed on an executor while the next ones fill, and written in order as they finish. On
+ * close the writer appends the index, one entry per block (eight-byte file offset, four-byte
+ * compressed and uncompressed lengths, eight-byte id of its first record), and a trailer
+ * (four-byte block count, eight-byte record count, eight-byte index offset, four-byte magic).
+ * Record ids start at zero. All numbers are big-endian.
+ */
+public class BlockWriter<T extends JasonLib.Serializable> implements Closeable
+{
+    public static final int DEFAULT_BLOCK_BYTES = 64 * 1024;
+
+    static final int MAGIC = 0x4a534e42;
+    static final int ENTRY = 24;
+    static final int TRAILER = 24;
+
+    private final OutputStream _out;
+    private final Codec _codec;
+    private final int _blockBytes;
+    private final int _level;
+    private final Executor _executor;
+    private final int _maxInFlight;
+    private final ArrayDeque<CompletableFuture<byte[]>> _inFlight = new ArrayDeque<>();
+    private final Bytes _index = new Bytes(1024);
+    private Bytes _block;
+    private long _first;
+    private long _count;
+    private int _written;
+    private long _offset;
+
+    public BlockWriter(OutputStream out, Codec codec)
+    {
+        this(out, codec, DEFAULT_BLOCK_BYTES, Deflater.DEFAULT_COMPRESSION, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * A writer that compresses blocks of about {@code blockBytes} at the given deflate
+     * {@code level} on {@code executor}, keeping a few blocks per core in flight.
+     */
+    public BlockWriter(OutputStream out, Codec codec, int blockBytes, int level, Executor executor)
+    {
+        if (blockBytes <= 0) throw new IllegalArgumentException("invalid block size: " + blockBytes);
+        _out = out;
+        _codec = codec;
+        _blockBytes = blockBytes;
+        _level = level;
+        _executor = executor;
+        _maxInFlight = 2 * Runtime.getRuntime().availableProcessors();
+        _block = new Bytes(blockBytes + 1024);
+    }
+
+    /**
+     * Appends a record and returns its id.
+     */
+    public long write(T t) throws IOException
+    {
+        int at = _block.count;
+        _block.writeInt(0);
+        try {
+            _codec.encode(t, _block);
+        } catch (IOException | RuntimeException e) {
+            _block.count = at;
+            throw e;
+        }
+        Bytes.putInt(_block.bytes, at, _block.count - at - 4);
+        long id = _count++;
+        if (_block.count >= _blockBytes) seal();
+        return id;
+    }
+
+    /**
+     * Number of records written so far, including any not yet compressed.
+     */
+    public long count()
+    {
+        return _count;
+    }
+
+    /**
+     * Hands the current block to the executor and starts the next one.
+     */
+    private void seal() throws IOException
+    {
+        Bytes block = _block;
+        int level = _level;
+        CompletableFuture<byte[]> compressed = CompletableFuture.supplyAsync(() -> compress(block, level), _executor);
+        _index.writeInt(0);
+        _index.writeInt(0);
+        _index.writeInt(0);
+        _index.writeInt(block.count);
+        writeLong(_index, _first);
+        _inFlight.add(compressed);
+        _first = _count;
+        _block = new Bytes(_blockBytes + 1024);
+        while (_inFlight.size() > _maxInFlight || (!_inFlight.isEmpty() && _inFlight.peek().isDone())) drain();
+    }
+
+    private static byte[] compress(Bytes block, int level)
+    {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(block.bytes, 0, block.count);
+            deflater.finish();
+            byte[] out = new byte[Math.max(64, block.count / 2)];
+            int n = 0;
+            while (!deflater.finished()) {
+                if (n == out.length) out = Arrays.copyOf(out, out.length * 2);
+                n += deflater.deflate(out, n, out.length - n);
+            }
+            return n == out.length ? out : Arrays.copyOf(out, n);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Writes the oldest block in flight, waiting for it if need be, and fills in its index entry.
+     */
+    private void drain() throws IOException
+    {
+        byte[] compressed;
+        try {
+            compressed = _inFlight.remove().join();
+        } catch (CompletionException e) {
+            throw new IOException("block compression failed", e.getCause());
+        }
+        int entry = _written++ * ENTRY;
+        Bytes.putInt(_index.bytes, entry, (int)(_offset >>> 32));
+        Bytes.putInt(_index.bytes, entry + 4, (int)_offset);
+        Bytes.putInt(_index.bytes, entry + 8, compressed.length);
+        _out.write(compressed);
+        _offset += compressed.length;
+    }
+
+    private static void writeLong(Bytes b, long v)
+    {
+        b.writeInt((int)(v >>> 32));
+        b.writeInt((int)v);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try {
+            if (_block.count > 0) seal();
+            while (!_inFlight.isEmpty()) drain();
+            long index = _offset;
+            int blocks = _index.count / ENTRY;
+            _index.writeInt(blocks);
+            writeLong(_index, _count);
+            writeLong(_index, index);
+            _index.writeInt(MAGIC);
+            _index.writeTo(_out);
+        } finally {
+            _out.close();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.mortimersmith.jason.records;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A growable byte array that can be written to as a stream and read back in place.
+ */
+class Bytes extends OutputStream
+{
+    byte[] bytes;
+    int count;
+
+    Bytes(int capacity)
+    {
+        bytes = new byte[capacity];
+    }
+
+    void ensure(int n)
+    {
+        if (count + n > bytes.length)
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, count + n));
+    }
+
+    void reset()
+    {
+        count = 0;
+    }
+
+    void writeInt(int v)
+    {
+        ensure(4);
+        putInt(bytes, count, v);
+        count += 4;
+    }
+
+    void writeTo(OutputStream out) throws IOException
+    {
+        out.write(bytes, 0, count);
+    }
+
+    @Override
+    public void write(int b)
+    {
+        ensure(1);
+        bytes[count++] = (byte)b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len)
+    {
+        ensure(len);
+        System.arraycopy(b, off, bytes, count, len);
+        count += len;
+    }
+
+    static void putInt(byte[] b, int at, int v)
+    {
+        b[at] = (byte)(v >>> 24);
+        b[at + 1] = (byte)(v >>> 16);
+        b[at + 2] = (byte)(v >>> 8);
+        b[at + 3] = (byte)v;
+    }
+
+    static int getInt(byte[] b, int at)
+    {
+        return ((b[at] & 0xff) << 24) | ((b[at + 1] & 0xff) << 16) | ((b[at + 2] & 0xff) << 8) | (b[at + 3] & 0xff);
+    }
+
+    /**
+     * The big-endian int at {@code at}, whatever the buffer's byte order.
+     */
+    static int getInt(ByteBuffer b, int at)
+    {
+        return ((b.get(at) & 0xff) << 24) | ((b.get(at + 1) & 0xff) << 16) | ((b.get(at + 2) & 0xff) << 8) | (b.get(at + 3) & 0xff);
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.mortimersmith.jason.records;
+
+import com.github.mortimersmith.jason.JasonLib;
+import com.github.mortimersmith.jason.binary.Buffers;
+import com.github.mortimersmith.jason.binary.Tagged;
+import com.github.mortimersmith.jason.json.JsonStream;
+import com.github.mortimersmith.jason.msgpack.MessagePack;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes a single record to bytes and back, through one of the serializers.
+ */
+public interface Codec
+{
+    <T extends JasonLib.Serializable> void encode(T t, OutputStream out) throws IOException;
+
+    <T extends JasonLib.Serializable> T decode(ByteBuffer in, JasonLib.From<T> from) throws IOException;
+
+    default <T extends JasonLib.Serializable> T decode(byte[] in, int offset, int length, JasonLib.From<T> from) throws IOException
+    {
+        return decode(ByteBuffer.wrap(in, offset, length), from);
+    }
+
+    /**
+     * MessagePack through sessions of its own, so the calling thread's
+     * {@link MessagePack#session()} is left as it was.
+     */
+    Codec MESSAGE_PACK = new Codec() {
+        private final MessagePack.Pool _sessions = new MessagePack.Pool(4 * Runtime.getRuntime().availableProcessors());
+
+        @Override
+        public <T extends JasonLib.Serializable> void encode(T t, OutputStream out) throws IOException {
+            try (MessagePack.Session s = _sessions.acquire()) {
+                s.wrap(t, out);
+            }
+        }
+
+        @Override
+        public <T extends JasonLib.Serializable> T decode(ByteBuffer in, JasonLib.From<T> from) throws IOException {
+            try (MessagePack.Session s = _sessions.acquire()) {
+                return s.unwrap(in, from);
+            }
+        }
+
+        @Override
+        public <T extends JasonLib.Serializable> T decode(byte[] in, int offset, int length, JasonLib.From<T> from) throws IOException {
+            try (MessagePack.Session s = _sessions.acquire()) {
+                return s.unwrap(in, offset, length, from);
+            }
+        }
+    };
+
+    Codec BUFFERS = new Codec() {
+        @Override
+        public <T extends JasonLib.Serializable> void encode(T t, OutputStream out) throws IOException {
+            ByteBuffer b = Buffers.wrap(t);
+            out.write(b.array(), b.arrayOffset() + b.position(), b.remaining());
+        }
+
+        @Override
+        public <T extends JasonLib.Serializable> T decode(ByteBuffer in, JasonLib.From<T> from) throws IOException {
+            return Buffers.unwrap(in, from);
+        }
+    };
+
+    Codec TAGGED = new Codec() {
+        @Override
+        public <T extends JasonLib.Serializable> void encode(T t, OutputStream out) throws IOException {
+            ByteBuffer b = Tagged.wrap(t);
+            out.write(b.array(), b.arrayOffset() + b.position(), b.remaining());
+        }
+
+        @Override
+        public <T extends JasonLib.Serializable> T decode(ByteBuffer in, JasonLib.From<T> from) throws IOException {
+            return Tagged.unwrap(in, from);
+        }
+    };
+
+    Codec JSON = new Codec() {
+        @Override
+        public <T extends JasonLib.Serializable> void encode(T t, OutputStream out) throws IOException {
+            JsonStream.wrap(t, out);
+        }
+
+        @Override
+        public <T extends JasonLib.Serializable> T decode(ByteBuffer in, JasonLib.From<T> from) throws IOException {
+            if (in.hasArray())
+                return decode(in.array(), in.arrayOffset() + in.position(), in.remaining(), from);
+            byte[] bytes = new byte[in.remaining()];
+            in.get(bytes);
+            return decode(bytes, 0, bytes.length, from);
+        }
+
+        @Override
+        public <T extends JasonLib.Serializable> T decode(byte[] in, int offset, int length, JasonLib.From<T> from) throws IOException {
+            return JsonStream.unwrap(new ByteArrayInputStream(in, offset, length), from);
+        }
+    };
+}
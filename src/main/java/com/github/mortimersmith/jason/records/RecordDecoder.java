@@ -0,0 +1,103 @@
+package com.github.mortimersmith.jason.records;
+
+import com.github.mortimersmith.jason.JasonLib;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes records framed by {@link RecordWriter} from chunks of bytes as they arrive, for reading
+ * from a non-blocking channel.
+ *
+ * Each call to {@link #next(ByteBuffer)} returns the next complete record, or null once the chunk
+ * is used up and more bytes are needed. Records that lie wholly inside a chunk are decoded from it
+ * in place; only a record cut off at the end of a chunk is copied, and only its own bytes, until
+ * the rest of it arrives.
+ */
+public class RecordDecoder<T extends JasonLib.Serializable>
+{
+    public static final int DEFAULT_MAX_LENGTH = 1 << 24;
+
+    private final Codec _codec;
+    private final JasonLib.From<T> _from;
+    private final int _maxLength;
+    private final byte[] _header = new byte[4];
+    private int _headerCount;
+    private byte[] _buffer = new byte[0];
+    private int _length = -1;
+    private int _count;
+
+    public RecordDecoder(Codec codec, JasonLib.From<T> from)
+    {
+        this(codec, from, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * A decoder that rejects records longer than {@code maxLength} bytes before buffering them.
+     */
+    public RecordDecoder(Codec codec, JasonLib.From<T> from, int maxLength)
+    {
+        _codec = codec;
+        _from = from;
+        _maxLength = maxLength;
+    }
+
+    /**
+     * Decodes the next record from the bytes held so far and those between the chunk's position
+     * and limit, advancing its position past what was used. Returns null, with the chunk used up,
+     * if no record is complete yet.
+     */
+    public T next(ByteBuffer chunk) throws IOException
+    {
+        if (_length < 0) {
+            if (_headerCount == 0 && chunk.remaining() >= 4) {
+                _length = length(Bytes.getInt(chunk, chunk.position()));
+                chunk.position(chunk.position() + 4);
+            } else {
+                while (_headerCount < 4 && chunk.hasRemaining()) _header[_headerCount++] = chunk.get();
+                if (_headerCount < 4) return null;
+                _length = length(Bytes.getInt(_header, 0));
+                _headerCount = 0;
+            }
+        }
+        int len = _length;
+        if (_count == 0 && chunk.remaining() >= len) {
+            ByteBuffer record = chunk.slice();
+            record.limit(len);
+            chunk.position(chunk.position() + len);
+            _length = -1;
+            return _codec.decode(record, _from);
+        }
+        if (_buffer.length < len) _buffer = new byte[Math.max(len, Math.min(_buffer.length * 2, _maxLength))];
+        int n = Math.min(len - _count, chunk.remaining());
+        chunk.get(_buffer, _count, n);
+        _count += n;
+        if (_count < len) return null;
+        _length = -1;
+        _count = 0;
+        return _codec.decode(_buffer, 0, len, _from);
+    }
+
+    private int length(int length) throws IOException
+    {
+        if (length < 0) throw new IOException("invalid record length: " + length);
+        if (length > _maxLength) throw new IOException("record too long: " + length);
+        return length;
+    }
+
+    /**
+     * Number of bytes held of a record that is not complete yet.
+     */
+    public int pending()
+    {
+        return _length < 0 ? _headerCount : 4 + _count;
+    }
+
+    /**
+     * Called at the end of the input; fails if it ended part way through a record.
+     */
+    public void end() throws IOException
+    {
+        if (pending() > 0) throw new EOFException("truncated record");
+    }
+}
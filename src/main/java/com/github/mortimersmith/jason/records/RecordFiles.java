@@ -0,0 +1,310 @@
+package com.github.mortimersmith.jason.records;
+
+import com.github.mortimersmith.jason.JasonLib;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Streams of the records in a file, read through a memory mapping by a spliterator that splits
+ * the file at record boundaries, so a parallel stream decodes on every core.
+ *
+ * JSON Lines files split at the first newline past the middle of a range. Files framed by
+ * {@link RecordWriter} are not self-synchronizing, so the first split walks every frame header
+ * once, without decoding, and notes a record boundary about every {@link #SYNC_INTERVAL} bytes
+ * to split at. Closing a stream closes its file.
+ */
+public final class RecordFiles
+{
+    public static final int SYNC_INTERVAL = 1 << 20;
+
+    private static final int MIN_SPLIT = 1 << 16;
+
+    private RecordFiles()
+    {
+    }
+
+    /**
+     * The records in a file of JSON objects, one per line. Blank lines are ignored.
+     */
+    public static <T extends JasonLib.Serializable> Stream<T> jsonLines(Path file, JasonLib.From<T> from) throws IOException
+    {
+        Mapped m = new Mapped(file);
+        return StreamSupport.stream(new Lines<>(m, 0, m._size, from), false).onClose(m::close);
+    }
+
+    /**
+     * The records in a file written by {@link RecordWriter} with {@code codec}.
+     */
+    public static <T extends JasonLib.Serializable> Stream<T> framed(Path file, Codec codec, JasonLib.From<T> from) throws IOException
+    {
+        Mapped m = new Mapped(file);
+        return StreamSupport.stream(new Frames<>(m, 0, m._size, codec, from), false).onClose(m::close);
+    }
+
+    /**
+     * A whole file, mapped read-only in regions of up to a gigabyte.
+     */
+    private static final class Mapped implements Closeable
+    {
+        private static final int SHIFT = 30;
+        private static final int REGION = 1 << SHIFT;
+
+        private final FileChannel _channel;
+        private final long _size;
+        private final MappedByteBuffer[] _regions;
+        private long[] _syncs;
+
+        Mapped(Path file) throws IOException
+        {
+            _channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                _size = _channel.size();
+                _regions = new MappedByteBuffer[(int)((_size + REGION - 1) >>> SHIFT)];
+                for (int i = 0; i < _regions.length; ++i) {
+                    long at = (long)i << SHIFT;
+                    _regions[i] = _channel.map(FileChannel.MapMode.READ_ONLY, at, Math.min(REGION, _size - at));
+                }
+            } catch (IOException | RuntimeException e) {
+                _channel.close();
+                throw e;
+            }
+        }
+
+        byte get(long at)
+        {
+            return _regions[(int)(at >>> SHIFT)].get((int)(at & (REGION - 1)));
+        }
+
+        int getInt(long at)
+        {
+            int offset = (int)(at & (REGION - 1));
+            if (offset <= REGION - 4) return _regions[(int)(at >>> SHIFT)].getInt(offset);
+            return (get(at) & 0xff) << 24 | (get(at + 1) & 0xff) << 16 | (get(at + 2) & 0xff) << 8 | (get(at + 3) & 0xff);
+        }
+
+        /**
+         * The position of the first {@code b} in {@code [from, to)}, or -1.
+         */
+        long indexOf(byte b, long from, long to)
+        {
+            while (from < to) {
+                ByteBuffer region = _regions[(int)(from >>> SHIFT)];
+                long base = from & ~(long)(REGION - 1);
+                int end = (int)Math.min(region.limit(), to - base);
+                for (int i = (int)(from - base); i < end; ++i) {
+                    if (region.get(i) == b) return base + i;
+                }
+                from = base + end;
+            }
+            return -1;
+        }
+
+        /**
+         * The {@code length} bytes at {@code at}, shared with the mapping unless they straddle
+         * two regions.
+         */
+        ByteBuffer slice(long at, int length)
+        {
+            int offset = (int)(at & (REGION - 1));
+            if (offset + (long)length <= REGION) {
+                ByteBuffer b = _regions[(int)(at >>> SHIFT)].duplicate();
+                b.limit(offset + length).position(offset);
+                return b.slice();
+            }
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; ++i) bytes[i] = get(at + i);
+            return ByteBuffer.wrap(bytes);
+        }
+
+        /**
+         * Frame starts roughly {@link #SYNC_INTERVAL} bytes apart, found by walking the headers.
+         */
+        synchronized long[] syncs()
+        {
+            if (_syncs != null) return _syncs;
+            long[] syncs = new long[16];
+            int n = 0;
+            long next = SYNC_INTERVAL;
+            for (long at = 0; at + 4 <= _size; ) {
+                if (at >= next) {
+                    if (n == syncs.length) syncs = Arrays.copyOf(syncs, n * 2);
+                    syncs[n++] = at;
+                    next = at + SYNC_INTERVAL;
+                }
+                int length = getInt(at);
+                if (length < 0) break;
+                at += 4 + (long)length;
+            }
+            _syncs = Arrays.copyOf(syncs, n);
+            return _syncs;
+        }
+
+        @Override
+        public void close()
+        {
+            try {
+                _channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * The records starting in {@code [_at, _end)}.
+     */
+    private abstract static class Records<T> implements Spliterator<T>
+    {
+        final Mapped _m;
+        long _at;
+        final long _end;
+
+        Records(Mapped m, long at, long end)
+        {
+            _m = m;
+            _at = at;
+            _end = end;
+        }
+
+        /**
+         * The first record boundary at or after {@code at}, or -1.
+         */
+        abstract long boundary(long at);
+
+        abstract Records<T> range(long at, long end);
+
+        @Override
+        public Spliterator<T> trySplit()
+        {
+            if (_end - _at < 2 * MIN_SPLIT) return null;
+            long split = boundary(_at + (_end - _at) / 2);
+            if (split <= _at || split >= _end) return null;
+            Records<T> prefix = range(_at, split);
+            _at = split;
+            return prefix;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action)
+        {
+            while (tryAdvance(action)) {
+            }
+        }
+
+        /**
+         * The number of bytes left, which is proportional to the number of records.
+         */
+        @Override
+        public long estimateSize()
+        {
+            return _end - _at;
+        }
+
+        @Override
+        public int characteristics()
+        {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+    }
+
+    private static final class Lines<T extends JasonLib.Serializable> extends Records<T>
+    {
+        private final JasonLib.From<T> _from;
+
+        Lines(Mapped m, long at, long end, JasonLib.From<T> from)
+        {
+            super(m, at, end);
+            _from = from;
+        }
+
+        @Override
+        long boundary(long at)
+        {
+            long nl = _m.indexOf((byte)'\n', at, _end);
+            return nl < 0 ? -1 : nl + 1;
+        }
+
+        @Override
+        Records<T> range(long at, long end)
+        {
+            return new Lines<>(_m, at, end, _from);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action)
+        {
+            while (_at < _end) {
+                long start = _at;
+                long nl = _m.indexOf((byte)'\n', start, _end);
+                long stop = nl < 0 ? _end : nl;
+                _at = nl < 0 ? _end : nl + 1;
+                if (stop > start && _m.get(stop - 1) == '\r') --stop;
+                if (stop == start) continue;
+                if (stop - start > Integer.MAX_VALUE) throw new UncheckedIOException(new IOException("line too long at " + start));
+                try {
+                    action.accept(Codec.JSON.decode(_m.slice(start, (int)(stop - start)), _from));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Frames<T extends JasonLib.Serializable> extends Records<T>
+    {
+        private final Codec _codec;
+        private final JasonLib.From<T> _from;
+
+        Frames(Mapped m, long at, long end, Codec codec, JasonLib.From<T> from)
+        {
+            super(m, at, end);
+            _codec = codec;
+            _from = from;
+        }
+
+        @Override
+        long boundary(long at)
+        {
+            long[] syncs = _m.syncs();
+            int i = Arrays.binarySearch(syncs, at);
+            if (i < 0) i = -i - 1;
+            return i < syncs.length ? syncs[i] : -1;
+        }
+
+        @Override
+        Records<T> range(long at, long end)
+        {
+            return new Frames<>(_m, at, end, _codec, _from);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action)
+        {
+            if (_at >= _end) return false;
+            try {
+                if (_end - _at < 4) throw new IOException("truncated record header at " + _at);
+                int length = _m.getInt(_at);
+                if (length < 0 || length > _end - _at - 4) throw new IOException("invalid record length at " + _at + ": " + length);
+                ByteBuffer record = _m.slice(_at + 4, length);
+                _at += 4 + (long)length;
+                action.accept(_codec.decode(record, _from));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.github.mortimersmith.jason.records;
+
+import com.github.mortimersmith.jason.JasonLib;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.TreeMap;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of records on disk, addressed by sequential ids starting at zero.
+ *
+ * The log is a directory of segments. Each segment is a {@code <first id>.log} file of frames
+ * (four-byte length, four-byte CRC-32 of the length and payload, payload) and a
+ * {@code <first id>.idx} file holding the eight-byte offset of each frame. Since the length is
+ * covered too, zero-filled space never passes for an empty frame. Both are memory-mapped for reads. Once a segment
+ * reaches {@code maxSegmentBytes} it is forced to disk and a new one is started.
+ *
+ * The active segment's files are mapped once, at {@code maxSegmentBytes}, which pads them with zeros
+ * until the segment is rolled or the log is closed; reads never look past the size and count that
+ * {@code append} has published, so the padding is never seen.
+ *
+ * On open, the last segment is checked: index entries past the last intact frame (or the padding
+ * left by a crash) are dropped,
+ * intact frames missing from the index are added back, and anything after them is truncated.
+ *
+ * Appends are serialized; reads may run concurrently with each other and with appends.
+ */
+public class RecordLog implements Closeable
+{
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    private static final int HEADER = 8;
+
+    private final Path _dir;
+    private final Codec _codec;
+    private final long _maxSegmentBytes;
+    private final TreeMap<Long, Segment> _segments = new TreeMap<>();
+    private final Bytes _frame = new Bytes(4096);
+    private final CRC32 _crc = new CRC32();
+    private volatile Segment _active;
+    private volatile long _next;
+
+    private RecordLog(Path dir, Codec codec, long maxSegmentBytes)
+    {
+        _dir = dir;
+        _codec = codec;
+        _maxSegmentBytes = maxSegmentBytes;
+    }
+
+    public static RecordLog open(Path dir, Codec codec) throws IOException
+    {
+        return open(dir, codec, DEFAULT_MAX_SEGMENT_BYTES);
+    }
+
+    public static RecordLog open(Path dir, Codec codec, long maxSegmentBytes) throws IOException
+    {
+        if (maxSegmentBytes <= HEADER || maxSegmentBytes > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("invalid segment size: " + maxSegmentBytes);
+        Files.createDirectories(dir);
+        RecordLog log = new RecordLog(dir, codec, maxSegmentBytes);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.log")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long base = Long.parseLong(name.substring(0, name.length() - 4));
+                log._segments.put(base, new Segment(dir, base));
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("unexpected file in " + dir, e);
+        }
+        if (log._segments.isEmpty()) log._segments.put(0L, new Segment(dir, 0));
+        for (Segment s : log._segments.values()) s.open();
+        log._active = log._segments.lastEntry().getValue();
+        log._active.recover(log._crc);
+        log._active.reserve = maxSegmentBytes;
+        log._next = log._active.base + log._active.count;
+        return log;
+    }
+
+    /**
+     * Appends a record and returns its id.
+     */
+    public synchronized <T extends JasonLib.Serializable> long append(T t) throws IOException
+    {
+        _frame.reset();
+        _frame.writeInt(0);
+        _frame.writeInt(0);
+        _codec.encode(t, _frame);
+        int len = _frame.count - HEADER;
+        Bytes.putInt(_frame.bytes, 0, len);
+        _crc.reset();
+        _crc.update(_frame.bytes, 0, 4);
+        _crc.update(_frame.bytes, HEADER, len);
+        Bytes.putInt(_frame.bytes, 4, (int)_crc.getValue());
+
+        Segment s = _active;
+        if (s.size > 0 && s.size + _frame.count > _maxSegmentBytes) s = roll();
+        s.append(_frame.bytes, _frame.count);
+        return _next++;
+    }
+
+    private Segment roll() throws IOException
+    {
+        _active.seal();
+        Segment s = new Segment(_dir, _next);
+        s.open();
+        s.reserve = _maxSegmentBytes;
+        synchronized (_segments) {
+            _segments.put(s.base, s);
+        }
+        _active = s;
+        return s;
+    }
+
+    /**
+     * Reads the record with the given id.
+     */
+    public <T extends JasonLib.Serializable> T get(long id, JasonLib.From<T> from) throws IOException
+    {
+        if (id < 0 || id >= _next) throw new IndexOutOfBoundsException("no record " + id);
+        Segment s;
+        synchronized (_segments) {
+            s = _segments.floorEntry(id).getValue();
+        }
+        return _codec.decode(s.read(id - s.base), from);
+    }
+
+    /**
+     * Reads every record in id order, from the given id on.
+     */
+    public <T extends JasonLib.Serializable> Stream<T> scan(long first, JasonLib.From<T> from)
+    {
+        return LongStream.range(first, _next).mapToObj((id) -> {
+            try {
+                return get(id, from);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    public <T extends JasonLib.Serializable> Stream<T> scan(JasonLib.From<T> from)
+    {
+        return scan(0, from);
+    }
+
+    /**
+     * The id the next appended record will get.
+     */
+    public long size()
+    {
+        return _next;
+    }
+
+    /**
+     * Forces everything appended so far to disk.
+     */
+    public synchronized void sync() throws IOException
+    {
+        _active.sync();
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        IOException failure = null;
+        try {
+            _active.trim();
+        } catch (IOException e) {
+            failure = e;
+        }
+        synchronized (_segments) {
+            for (Segment s : _segments.values()) {
+                try {
+                    s.close();
+                } catch (IOException e) {
+                    if (failure == null) failure = e; else failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    private static class Segment
+    {
+        final long base;
+        final Path logPath;
+        final Path idxPath;
+        FileChannel log;
+        FileChannel idx;
+        volatile long size;
+        volatile long count;
+        /** How far to map the files ahead of their contents; zero once the segment is sealed. */
+        volatile long reserve;
+        private volatile MappedByteBuffer _logMap;
+        private volatile MappedByteBuffer _idxMap;
+        private final ByteBuffer _entry = ByteBuffer.allocate(8);
+
+        Segment(Path dir, long base)
+        {
+            this.base = base;
+            logPath = dir.resolve(String.format("%020d.log", base));
+            idxPath = dir.resolve(String.format("%020d.idx", base));
+        }
+
+        void open() throws IOException
+        {
+            log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            idx = FileChannel.open(idxPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            size = log.size();
+            count = idx.size() / 8;
+        }
+
+        void recover(CRC32 crc) throws IOException
+        {
+            long logSize = log.size();
+            long n = idx.size() / 8;
+            long lo = 1;
+            for (long hi = n; lo < hi; ) {
+                long mid = (lo + hi) >>> 1;
+                if (readOffset(mid) == 0) hi = mid; else lo = mid + 1;
+            }
+            n = Math.min(n, lo);
+            long end = 0;
+            while (n > 0) {
+                long frameEnd = validFrameEnd(readOffset(n - 1), logSize, crc);
+                if (frameEnd >= 0) {
+                    end = frameEnd;
+                    break;
+                }
+                --n;
+            }
+            for (long frameEnd; (frameEnd = validFrameEnd(end, logSize, crc)) >= 0; end = frameEnd)
+                writeOffset(n++, end);
+            idx.truncate(n * 8);
+            log.truncate(end);
+            size = end;
+            count = n;
+        }
+
+        private long validFrameEnd(long offset, long logSize, CRC32 crc) throws IOException
+        {
+            if (offset < 0 || offset + HEADER > logSize) return -1;
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            readFully(log, header, offset);
+            int len = header.getInt(0);
+            if (len < 0 || offset + HEADER + len > logSize) return -1;
+            ByteBuffer payload = ByteBuffer.allocate(len);
+            readFully(log, payload, offset + HEADER);
+            crc.reset();
+            crc.update(header.array(), 0, 4);
+            crc.update(payload.array(), 0, len);
+            return (int)crc.getValue() == header.getInt(4) ? offset + HEADER + len : -1;
+        }
+
+        private long readOffset(long i) throws IOException
+        {
+            _entry.clear();
+            readFully(idx, _entry, i * 8);
+            return _entry.getLong(0);
+        }
+
+        private void writeOffset(long i, long offset) throws IOException
+        {
+            _entry.clear();
+            _entry.putLong(0, offset);
+            while (_entry.hasRemaining()) idx.write(_entry, i * 8 + _entry.position());
+        }
+
+        void append(byte[] frame, int length) throws IOException
+        {
+            ByteBuffer b = ByteBuffer.wrap(frame, 0, length);
+            long at = size;
+            while (b.hasRemaining()) log.write(b, at + b.position());
+            writeOffset(count, at);
+            size = at + length;
+            ++count;
+        }
+
+        ByteBuffer read(long i) throws IOException
+        {
+            long n = count;
+            long end = size;
+            if (i < 0 || i >= n) throw new IndexOutOfBoundsException("no record " + (base + i));
+            ByteBuffer idxMap = _idxMap;
+            if (idxMap == null || idxMap.capacity() < n * 8) idxMap = mapIdx();
+            ByteBuffer logMap = _logMap;
+            if (logMap == null || logMap.capacity() < end) logMap = mapLog();
+            int offset = (int)idxMap.getLong((int)(i * 8));
+            int len = logMap.getInt(offset);
+            if (len < 0 || offset + HEADER + len > end) throw new IOException("corrupt record " + (base + i));
+            ByteBuffer b = logMap.duplicate();
+            b.limit(offset + HEADER + len).position(offset + HEADER);
+            return b.slice();
+        }
+
+        private synchronized ByteBuffer mapIdx() throws IOException
+        {
+            long needed = count * 8;
+            if (_idxMap == null || _idxMap.capacity() < needed)
+                _idxMap = idx.map(FileChannel.MapMode.READ_ONLY, 0, Math.max(needed, reserve));
+            return _idxMap;
+        }
+
+        private synchronized ByteBuffer mapLog() throws IOException
+        {
+            long needed = size;
+            if (_logMap == null || _logMap.capacity() < needed)
+                _logMap = log.map(FileChannel.MapMode.READ_ONLY, 0, Math.max(needed, reserve));
+            return _logMap;
+        }
+
+        /**
+         * Cuts the padding a mapping may have added back off the files; synchronized with the
+         * mappings so none can pad them again behind it.
+         */
+        synchronized void trim() throws IOException
+        {
+            log.truncate(size);
+            idx.truncate(count * 8);
+        }
+
+        void seal() throws IOException
+        {
+            synchronized (this) {
+                reserve = 0;
+                trim();
+            }
+            sync();
+        }
+
+        void sync() throws IOException
+        {
+            log.force(true);
+            idx.force(true);
+        }
+
+        void close() throws IOException
+        {
+            try {
+                log.close();
+            } finally {
+                idx.close();
+            }
+        }
+
+        private static void readFully(FileChannel ch, ByteBuffer b, long at) throws IOException
+        {
+            while (b.hasRemaining()) {
+                if (ch.read(b, at + b.position()) < 0) throw new EOFException();
+            }
+        }
+    }
+}
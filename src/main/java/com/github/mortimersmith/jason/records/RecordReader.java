@@ -0,0 +1,157 @@
+package com.github.mortimersmith.jason.records;
+
+import com.github.mortimersmith.jason.JasonLib;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads records framed by {@link RecordWriter}, decoding each one only when it is asked for.
+ */
+public class RecordReader<T extends JasonLib.Serializable> implements Iterator<T>, Closeable
+{
+    public static final int DEFAULT_MAX_LENGTH = 1 << 24;
+
+    private final InputStream _in;
+    private final Codec _codec;
+    private final JasonLib.From<T> _from;
+    private final int _maxLength;
+    private final byte[] _header = new byte[4];
+    private byte[] _buffer = new byte[4096];
+    private int _length = -1;
+    private boolean _eof;
+
+    public RecordReader(InputStream in, Codec codec, JasonLib.From<T> from)
+    {
+        this(in, codec, from, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * A reader that rejects records longer than {@code maxLength} bytes before buffering them.
+     */
+    public RecordReader(InputStream in, Codec codec, JasonLib.From<T> from, int maxLength)
+    {
+        _in = in instanceof BufferedInputStream ? in : new BufferedInputStream(in);
+        _codec = codec;
+        _from = from;
+        _maxLength = maxLength;
+    }
+
+    /**
+     * Reads the next frame's length, or returns false at a clean end of stream.
+     */
+    private boolean advance() throws IOException
+    {
+        if (_length >= 0) return true;
+        if (_eof) return false;
+        int n = 0;
+        while (n < 4) {
+            int r = _in.read(_header, n, 4 - n);
+            if (r < 0) {
+                if (n == 0) { _eof = true; return false; }
+                throw new EOFException("truncated record header");
+            }
+            n += r;
+        }
+        _length = Bytes.getInt(_header, 0);
+        if (_length < 0) throw new IOException("invalid record length: " + _length);
+        if (_length > _maxLength) throw new IOException("record too long: " + _length);
+        return true;
+    }
+
+    private void readFully(byte[] b, int len) throws IOException
+    {
+        int n = 0;
+        while (n < len) {
+            int r = _in.read(b, n, len - n);
+            if (r < 0) throw new EOFException("truncated record");
+            n += r;
+        }
+    }
+
+    /**
+     * Reads and decodes the next record, or returns null at the end of the stream.
+     */
+    public T read() throws IOException
+    {
+        if (!advance()) return null;
+        int len = _length;
+        _length = -1;
+        if (_buffer.length < len) _buffer = new byte[Math.max(len, Math.min(_buffer.length * 2, _maxLength))];
+        readFully(_buffer, len);
+        return _codec.decode(_buffer, 0, len, _from);
+    }
+
+    /**
+     * Skips the next record by its length, without decoding it. Returns false at the end of
+     * the stream.
+     */
+    public boolean skip() throws IOException
+    {
+        if (!advance()) return false;
+        long remaining = _length;
+        _length = -1;
+        while (remaining > 0) {
+            long r = _in.skip(remaining);
+            if (r <= 0) {
+                if (_in.read() < 0) throw new EOFException("truncated record");
+                r = 1;
+            }
+            remaining -= r;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        try {
+            return advance();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public T next()
+    {
+        try {
+            T t = read();
+            if (t == null) throw new NoSuchElementException();
+            return t;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The remaining records as a sequential stream; closing the stream closes this reader.
+     */
+    public Stream<T> stream()
+    {
+        return StreamSupport
+            .stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(() -> {
+                try {
+                    close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        _in.close();
+    }
+}
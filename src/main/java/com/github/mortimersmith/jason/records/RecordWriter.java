@@ -0,0 +1,95 @@
+package com.github.mortimersmith.jason.records;
+
+import com.github.mortimersmith.jason.JasonLib;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Appends records to a stream, each framed by a four-byte big-endian length.
+ *
+ * Records are batched in memory and handed to the stream once the batch holds
+ * {@code maxRecords} records or {@code maxBytes} bytes, or on {@link #flush()}.
+ */
+public class RecordWriter<T extends JasonLib.Serializable> implements Closeable, Flushable
+{
+    public static final int DEFAULT_MAX_RECORDS = 1024;
+    public static final int DEFAULT_MAX_BYTES = 64 * 1024;
+
+    private final OutputStream _out;
+    private final Codec _codec;
+    private final int _maxRecords;
+    private final int _maxBytes;
+    private final Bytes _batch;
+    private int _batched;
+    private long _count;
+
+    public RecordWriter(OutputStream out, Codec codec)
+    {
+        this(out, codec, DEFAULT_MAX_RECORDS, DEFAULT_MAX_BYTES);
+    }
+
+    public RecordWriter(OutputStream out, Codec codec, int maxRecords, int maxBytes)
+    {
+        _out = out;
+        _codec = codec;
+        _maxRecords = maxRecords;
+        _maxBytes = maxBytes;
+        _batch = new Bytes(Math.min(maxBytes, DEFAULT_MAX_BYTES) + 1024);
+    }
+
+    public RecordWriter<T> write(T t) throws IOException
+    {
+        int at = _batch.count;
+        _batch.writeInt(0);
+        try {
+            _codec.encode(t, _batch);
+        } catch (IOException | RuntimeException e) {
+            _batch.count = at;
+            throw e;
+        }
+        Bytes.putInt(_batch.bytes, at, _batch.count - at - 4);
+        ++_count;
+        if (++_batched >= _maxRecords || _batch.count >= _maxBytes) drain();
+        return this;
+    }
+
+    public RecordWriter<T> writeAll(Iterable<? extends T> ts) throws IOException
+    {
+        for (T t : ts) write(t);
+        return this;
+    }
+
+    /**
+     * Number of records written so far, including any still batched.
+     */
+    public long count()
+    {
+        return _count;
+    }
+
+    private void drain() throws IOException
+    {
+        _batch.writeTo(_out);
+        _batch.reset();
+        _batched = 0;
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        drain();
+        _out.flush();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try {
+            drain();
+        } finally {
+            _out.close();
+        }
+    }
+}
@@ -1,23 +1,50 @@
 package com.github.mortimersmith.jason;
 
+import com.github.mortimersmith.jason.binary.Buffers;
+import com.github.mortimersmith.jason.binary.Tagged;
+import com.github.mortimersmith.jason.json.Json;
+import com.github.mortimersmith.jason.json.JsonBytes;
+import com.github.mortimersmith.jason.json.JsonStream;
+import com.github.mortimersmith.jason.msgpack.MessagePack;
 import com.github.mortimersmith.utils.Utils;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.tools.ToolProvider;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import org.junit.Test;
-import static org.junit.Assert.assertEquals;
 
 public class CompilerTest
 {
-    @Test
-    public void test() throws Exception
+    private static ClassLoader compile(JsonObject json, String name) throws Exception
     {
-        String data = Utils.read(CompilerTest.class.getResourceAsStream("/example.json"), StandardCharsets.UTF_8);
-        JsonObject json = new JsonParser().parse(data).getAsJsonObject();
         Path pathSource = Paths.get("build/output/test/source");
         Path pathClasses = Paths.get("build/output/test/classes");
         Compiler.compileJson(json, pathSource);
@@ -28,8 +55,284 @@ public class CompilerTest
             , System.getProperty("java.class.path")
             , "-d"
             , pathClasses.toString()
-            , pathSource.resolve(Paths.get("com/github/mortimersmith/jason/Examples.java")).toString()
+            , pathSource.resolve(Paths.get("com/github/mortimersmith/jason/" + name + ".java")).toString()
             );
         assertEquals(0, code);
+        return new URLClassLoader(new URL[] { pathClasses.toUri().toURL() }, CompilerTest.class.getClassLoader());
+    }
+
+    private static Object call(Class<?> type, Object target, String name, Object... args) throws Exception
+    {
+        for (Method m : type.getMethods()) {
+            if (m.getName().equals(name) && m.getParameterCount() == args.length) {
+                try {
+                    return m.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause() instanceof Exception ? (Exception)e.getCause() : e;
+                }
+            }
+        }
+        throw new NoSuchMethodException(name);
+    }
+
+    private static JasonLib.From<JasonLib.Serializable> from(Class<?> type)
+    {
+        return from(type, "from");
+    }
+
+    private static JasonLib.From<JasonLib.Serializable> from(Class<?> type, String method)
+    {
+        return new JasonLib.From<JasonLib.Serializable>() {
+            @Override
+            public <ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> JasonLib.Serializable
+                get(JasonLib.Serializer<ObjectRead, ObjectWrite, PrimitiveRead, PrimitiveWrite> s, PrimitiveRead o)
+                throws IOException
+            {
+                try {
+                    return (JasonLib.Serializable)call(type, null, method, s, o);
+                } catch (IOException | RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IOException(e);
+                }
+            }
+        };
+    }
+
+    private static ClassLoader examples() throws Exception
+    {
+        String data = Utils.read(CompilerTest.class.getResourceAsStream("/example.json"), StandardCharsets.UTF_8);
+        return compile(new JsonParser().parse(data).getAsJsonObject(), "Examples");
+    }
+
+    @Test
+    public void test() throws Exception
+    {
+        examples();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void projection() throws Exception
+    {
+        ClassLoader loader = examples();
+        Class<?> self = loader.loadClass("com.github.mortimersmith.jason.Examples$This");
+        Class<?> that = loader.loadClass("com.github.mortimersmith.jason.Examples$That");
+        Class<Enum> fields = (Class<Enum>)loader.loadClass("com.github.mortimersmith.jason.Examples$This$Fields");
+        Object[] projected = (Object[])Array.newInstance(fields, 2);
+        projected[0] = Enum.valueOf(fields, "TWO");
+        projected[1] = Enum.valueOf(fields, "FIVE");
+        JasonLib.Serializable a = (JasonLib.Serializable)call(self, null, "of", true, call(that, null, "of", 3), Arrays.asList(1, 2),
+            Collections.singletonMap("k", call(that, null, "of", 7)), Optional.of(5L), new double[] { 0.5 });
+        Object expected = call(self, null, "of", false, call(that, null, "of", 3), Collections.emptyList(),
+            Collections.emptyMap(), Optional.of(5L), new double[0]);
+
+        JasonLib.From<JasonLib.Serializable> from = (JasonLib.From<JasonLib.Serializable>)call(self, null, "from", (Object)projected);
+        assertEquals(expected, Json.unwrap(Json.wrap(a), from));
+        ByteBuffer buffer = Buffers.wrap(a);
+        assertEquals(expected, Buffers.unwrap(buffer, from));
+        assertEquals(0, buffer.remaining());
+        assertEquals(expected, Tagged.unwrap(Tagged.wrap(a), from));
+        assertSame(call(self, null, "reader", Buffers.INSTANCE, projected), call(self, null, "reader", Buffers.INSTANCE, projected));
+        assertSame(call(self, null, "skipper", Buffers.INSTANCE), call(self, null, "skipper", Buffers.INSTANCE));
+    }
+
+    @Test
+    public void readKeyed() throws Exception
+    {
+        ClassLoader loader = examples();
+        Class<?> self = loader.loadClass("com.github.mortimersmith.jason.Examples$This");
+        String in = "{\"six\":[0.5],\"unknown\":{\"one\":[1]},\"four\":{\"k\":{\"one\":7,\"more\":null}},"
+            + "\"three\":[1,2],\"two\":{\"one\":3},\"one\":true}";
+        JasonLib.Serializable t = JsonStream.unwrap(new StringReader(in), from(self));
+        assertEquals("{\"one\":true,\"two\":{\"one\":3},\"three\":[1,2],\"four\":{\"k\":{\"one\":7}},\"six\":[0.5]}", Json.wrap(t).toString());
+        try {
+            JsonStream.unwrap(new StringReader("{\"one\":true,\"extra\":[],\"three\":[],\"four\":{},\"six\":[]}"), from(self));
+            fail();
+        } catch (IOException e) {
+            assertEquals("missing field: two", e.getMessage());
+        }
+    }
+
+    private static void assertView(Object expected, Object view) throws Exception
+    {
+        Class<?> type = view.getClass();
+        assertEquals(call(expected.getClass(), expected, "four"), call(type, view, "four"));
+        Object two = call(type, view, "two");
+        assertEquals(call(expected.getClass(), expected, "two"), two);
+        assertSame(two, call(type, view, "two"));
+        assertEquals(call(expected.getClass(), expected, "one"), call(type, view, "one"));
+        assertEquals(expected, call(type, view, "materialize"));
+    }
+
+    @Test
+    public void view() throws Exception
+    {
+        ClassLoader loader = examples();
+        Class<?> self = loader.loadClass("com.github.mortimersmith.jason.Examples$This");
+        Class<?> that = loader.loadClass("com.github.mortimersmith.jason.Examples$That");
+        JasonLib.Serializable a = (JasonLib.Serializable)call(self, null, "of", true, call(that, null, "of", 3), Arrays.asList(1, 2),
+            Collections.singletonMap("k", call(that, null, "of", 7)), Optional.of(5L), new double[] { 0.5 });
+        JasonLib.From<JasonLib.Serializable> view = from(self, "view");
+
+        assertView(a, Json.unwrap(Json.wrap(a), view));
+        assertView(a, Buffers.unwrap(Buffers.wrap(a), view));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MessagePack.wrap(a, out);
+        assertView(a, MessagePack.unwrap(new ByteArrayInputStream(out.toByteArray()), view));
+        assertEquals(Json.wrap(a), Json.wrap(Json.unwrap(Json.wrap(a), view)));
+    }
+
+    @Test
+    public void readInto() throws Exception
+    {
+        ClassLoader loader = examples();
+        Class<?> self = loader.loadClass("com.github.mortimersmith.jason.Examples$This");
+        Class<?> that = loader.loadClass("com.github.mortimersmith.jason.Examples$That");
+        Object a = call(self, null, "of", true, call(that, null, "of", 3), Arrays.asList(1, 2, 3),
+            Collections.singletonMap("k", call(that, null, "of", 7)), Optional.of(5L), new double[] { 0.5 });
+        Object b = call(self, null, "of", false, call(that, null, "of", 4), Arrays.asList(9),
+            Collections.emptyMap(), Optional.empty(), new double[0]);
+
+        Object r = call(self, null, "readInto", Json.INSTANCE, Json.wrap((JasonLib.Serializable)a), null);
+        Object built = call(r.getClass(), r, "build");
+        assertEquals(a, built);
+        Object list = call(r.getClass(), r, "three");
+        Object two = call(r.getClass(), r, "two");
+        assertSame(r, call(self, null, "readInto", Json.INSTANCE, Json.wrap((JasonLib.Serializable)b), r));
+        assertEquals(b, call(r.getClass(), r, "build"));
+        assertEquals(a, built);
+        assertSame(list, call(r.getClass(), r, "three"));
+        assertSame(two, call(r.getClass(), r, "two"));
+
+        List<Integer> unmodifiable = Collections.unmodifiableList(Arrays.asList(8));
+        call(r.getClass(), r, "three", unmodifiable);
+        call(self, null, "readInto", Json.INSTANCE, Json.wrap((JasonLib.Serializable)a), r);
+        assertEquals(a, call(r.getClass(), r, "build"));
+        assertEquals(Arrays.asList(8), unmodifiable);
+    }
+
+    @Test
+    public void packedOrNot() throws Exception
+    {
+        String data
+            = "{ \"package\" : \"com.github.mortimersmith.jason\", \"namespaces\" : [ { \"name\" : \"Packing\", \"types\" : ["
+            + "  { \"name\" : \"Plain\", \"fields\" : [ { \"name\" : \"s\", \"type\" : \"string\" } ] },"
+            + "  { \"name\" : \"Packed\", \"fields\" : [ { \"name\" : \"p\", \"type\" : \"list\", \"of\" : \"int\", \"packed\" : true } ] }"
+            + "] } ] }";
+        compile(new JsonParser().parse(data).getAsJsonObject(), "Packing");
+    }
+
+    @Test
+    public void jsonBytesNumbers() throws Exception
+    {
+        String data
+            = "{ \"package\" : \"com.github.mortimersmith.jason\", \"namespaces\" : [ { \"name\" : \"Numbers\", \"types\" : ["
+            + "  { \"name\" : \"N\", \"fields\" : ["
+            + "    { \"name\" : \"d\", \"type\" : \"list\", \"of\" : \"double\" },"
+            + "    { \"name\" : \"f\", \"type\" : \"list\", \"of\" : \"float\" } ] }"
+            + "] } ] }";
+        Class<?> type = compile(new JsonParser().parse(data).getAsJsonObject(), "Numbers").loadClass("com.github.mortimersmith.jason.Numbers$N");
+        JasonLib.Serializable n = (JasonLib.Serializable)call(type, null, "of",
+            Arrays.asList(2e23, 7.1202363472230444E-307, Double.MIN_VALUE, Double.MAX_VALUE, 1e7, 9999999.5, 0.001, 1e-4, -0.0, 123.456),
+            Arrays.asList(Float.MIN_VALUE, Float.MAX_VALUE, 1.6777216E7f, 0.1f, -3f));
+        byte[] bytes = JsonBytes.wrap(n);
+        assertEquals("{\"d\":[2.0E23,7.120236347223045E-307,4.9E-324,1.7976931348623157E308,1.0E7,9999999.5,0.001,1.0E-4,-0.0,123.456],"
+            + "\"f\":[1.4E-45,3.4028235E38,1.6777216E7,0.1,-3.0]}", new String(bytes, StandardCharsets.UTF_8));
+        assertEquals(n, JsonBytes.unwrap(bytes, from(type)));
+
+        Random random = new Random(7);
+        List<Double> doubles = new ArrayList<>();
+        List<Float> floats = new ArrayList<>();
+        while (doubles.size() < 1000) {
+            double d = Double.longBitsToDouble(random.nextLong());
+            float f = Float.intBitsToFloat(random.nextInt());
+            if (!Double.isNaN(d) && !Double.isInfinite(d)) doubles.add(d);
+            if (!Float.isNaN(f) && !Float.isInfinite(f)) floats.add(f);
+        }
+        n = (JasonLib.Serializable)call(type, null, "of", doubles, floats);
+        assertEquals(n, JsonBytes.unwrap(JsonBytes.wrap(n), from(type)));
+    }
+
+    private static String spec(String namespace, String field)
+    {
+        return "{ \"package\" : \"specs\", \"namespaces\" : [ { \"name\" : \"" + namespace + "\", \"types\" : ["
+            + "  { \"name\" : \"T\", \"fields\" : [ { \"name\" : \"" + field + "\", \"type\" : \"int\" } ] }"
+            + "] } ] }";
+    }
+
+    @Test
+    public void compileFailures() throws Exception
+    {
+        Path root = Files.createTempDirectory("jason-specs");
+        try {
+            Path a = root.resolve("a.json");
+            Path b = root.resolve("b.json");
+            Path c = root.resolve("c.json");
+            Path d = root.resolve("d.json");
+            Files.write(a, "not a spec".getBytes(StandardCharsets.UTF_8));
+            Files.write(b, spec("N", "x").getBytes(StandardCharsets.UTF_8));
+            Files.write(c, "{ \"package\" : \"specs\" }".getBytes(StandardCharsets.UTF_8));
+            Files.write(d, spec("N", "y").getBytes(StandardCharsets.UTF_8));
+            try {
+                Compiler.compile(Arrays.asList(a, b, c, d), root.resolve("out"));
+                fail();
+            } catch (Compiler.Error e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("a.json: "));
+                assertEquals(2, e.getSuppressed().length);
+                assertTrue(e.getSuppressed()[0].getMessage(), e.getSuppressed()[0].getMessage().startsWith("c.json: "));
+                assertEquals("d.json: namespace specs.N is already defined in b.json", e.getSuppressed()[1].getMessage());
+            }
+            assertFalse(Files.exists(root.resolve("out")));
+        } finally {
+            try (Stream<Path> walk = Files.walk(root)) {
+                for (Path p : walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) Files.delete(p);
+            }
+        }
+    }
+
+    @Test
+    public void specCache() throws Exception
+    {
+        Path root = Files.createTempDirectory("jason-specs");
+        Path specs = root.resolve("specs");
+        Path target = root.resolve("out");
+        Path cache = root.resolve("cache/specs.json");
+        try {
+            Files.createDirectories(specs.resolve("fixtures"));
+            Files.write(specs.resolve("a.json"), spec("A", "x").getBytes(StandardCharsets.UTF_8));
+            Files.write(specs.resolve("b.json"), spec("B", "x").getBytes(StandardCharsets.UTF_8));
+            Files.write(specs.resolve("fixtures/bad.json"), "not a spec".getBytes(StandardCharsets.UTF_8));
+            Path a = target.resolve("specs/A.java");
+            Path b = target.resolve("specs/B.java");
+
+            assertEquals(Arrays.asList(specs.resolve("a.json"), specs.resolve("b.json")), SpecCache.compile(specs, target, cache, false));
+            assertTrue(Files.isRegularFile(a) && Files.isRegularFile(b));
+            assertEquals(Collections.emptyList(), SpecCache.compile(specs, target, cache, false));
+
+            Files.setLastModifiedTime(a, FileTime.fromMillis(0));
+            Files.setLastModifiedTime(b, FileTime.fromMillis(0));
+            Files.write(specs.resolve("b.json"), (spec("B", "x") + "\n").getBytes(StandardCharsets.UTF_8));
+            assertEquals(Collections.singletonList(specs.resolve("b.json")), SpecCache.compile(specs, target, cache, false));
+            assertEquals(0, Files.getLastModifiedTime(b).toMillis());
+
+            Files.write(specs.resolve("b.json"), spec("C", "y").getBytes(StandardCharsets.UTF_8));
+            assertEquals(Collections.singletonList(specs.resolve("b.json")), SpecCache.compile(specs, target, cache, false));
+            assertFalse(Files.exists(b));
+            assertTrue(Files.isRegularFile(target.resolve("specs/C.java")));
+            assertEquals(0, Files.getLastModifiedTime(a).toMillis());
+
+            Files.delete(specs.resolve("a.json"));
+            assertEquals(Collections.emptyList(), SpecCache.compile(specs, target, cache, false));
+            assertFalse(Files.exists(a));
+
+            Files.delete(target.resolve("specs/C.java"));
+            assertEquals(Collections.singletonList(specs.resolve("b.json")), SpecCache.compile(specs, target, cache, false));
+            assertEquals(Collections.singletonList(specs.resolve("b.json")), SpecCache.compile(specs, target, cache, true));
+        } finally {
+            try (Stream<Path> walk = Files.walk(root)) {
+                for (Path p : walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) Files.delete(p);
+            }
+        }
     }
 }
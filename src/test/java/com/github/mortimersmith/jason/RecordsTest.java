@@ -0,0 +1,398 @@
+package com.github.mortimersmith.jason;
+
+import com.github.mortimersmith.jason.json.Json;
+import com.github.mortimersmith.jason.msgpack.MessagePack;
+import com.github.mortimersmith.jason.records.Batches;
+import com.github.mortimersmith.jason.records.BlockReader;
+import com.github.mortimersmith.jason.records.BlockWriter;
+import com.github.mortimersmith.jason.records.Codec;
+import com.github.mortimersmith.jason.records.RecordDecoder;
+import com.github.mortimersmith.jason.records.RecordFiles;
+import com.github.mortimersmith.jason.records.RecordLog;
+import com.github.mortimersmith.jason.records.RecordReader;
+import com.github.mortimersmith.jason.records.RecordWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class RecordsTest
+{
+    private static Example.Foo foo(int i)
+    {
+        return Example.Foo.of(i % 2 == 0, Optional.of((long)i), Arrays.asList(i, i + 1), Collections.singletonMap("k" + i, Example.Bar.of()));
+    }
+
+    private static String json(Example.Foo foo) throws Exception
+    {
+        return Json.wrap(foo).toString();
+    }
+
+    private static byte[] write(Codec codec, int n) throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (RecordWriter<Example.Foo> w = new RecordWriter<>(out, codec, 3, 1 << 16)) {
+            for (int i = 0; i < n; ++i) w.write(foo(i));
+            assertEquals(n, w.count());
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void stream() throws Exception
+    {
+        for (Codec codec : Arrays.asList(Codec.MESSAGE_PACK, Codec.BUFFERS, Codec.JSON)) {
+            byte[] bytes = write(codec, 10);
+            List<Example.Foo> read;
+            try (RecordReader<Example.Foo> r = new RecordReader<>(new ByteArrayInputStream(bytes), codec, Example.Foo::from)) {
+                read = r.stream().collect(Collectors.toList());
+            }
+            assertEquals(10, read.size());
+            for (int i = 0; i < read.size(); ++i) assertEquals(json(foo(i)), json(read.get(i)));
+        }
+    }
+
+    @Test
+    public void sessionUntouched() throws Exception
+    {
+        MessagePack.Session session = MessagePack.session().reset();
+        try {
+            session.append(foo(0)).append(foo(1));
+            int size = session.size();
+            byte[] bytes = write(Codec.MESSAGE_PACK, 1);
+            assertEquals(size, session.size());
+            try (RecordReader<Example.Foo> r = new RecordReader<>(new ByteArrayInputStream(bytes), Codec.MESSAGE_PACK, Example.Foo::from)) {
+                assertEquals(json(foo(0)), json(r.read()));
+            }
+            assertEquals(size, session.size());
+        } finally {
+            session.reset();
+        }
+    }
+
+    @Test
+    public void skip() throws Exception
+    {
+        byte[] bytes = write(Codec.MESSAGE_PACK, 4);
+        try (RecordReader<Example.Foo> r = new RecordReader<>(new ByteArrayInputStream(bytes), Codec.MESSAGE_PACK, Example.Foo::from)) {
+            assertTrue(r.skip());
+            assertEquals(json(foo(1)), json(r.next()));
+            assertTrue(r.skip());
+            assertTrue(r.hasNext());
+            assertEquals(json(foo(3)), json(r.read()));
+            assertFalse(r.skip());
+            assertFalse(r.hasNext());
+        }
+    }
+
+    @Test
+    public void tooLong() throws Exception
+    {
+        byte[] bytes = { 0x7f, (byte)0xff, (byte)0xff, (byte)0xff, 1, 2, 3 };
+        try (RecordReader<Example.Foo> r = new RecordReader<>(new ByteArrayInputStream(bytes), Codec.MESSAGE_PACK, Example.Foo::from)) {
+            r.read();
+            fail();
+        } catch (IOException e) {
+            assertEquals("record too long: " + Integer.MAX_VALUE, e.getMessage());
+        }
+    }
+
+    @Test
+    public void decoder() throws Exception
+    {
+        for (Codec codec : Arrays.asList(Codec.MESSAGE_PACK, Codec.BUFFERS, Codec.JSON)) {
+            byte[] bytes = write(codec, 10);
+            for (int chunk : new int[] { 1, 3, 7, 64, bytes.length }) {
+                RecordDecoder<Example.Foo> d = new RecordDecoder<>(codec, Example.Foo::from);
+                List<Example.Foo> read = new ArrayList<>();
+                for (int at = 0; at < bytes.length; at += chunk) {
+                    ByteBuffer b = ByteBuffer.allocateDirect(Math.min(chunk, bytes.length - at)).order(ByteOrder.LITTLE_ENDIAN);
+                    b.put(bytes, at, b.capacity()).flip();
+                    for (Example.Foo foo; (foo = d.next(b)) != null; ) read.add(foo);
+                    assertFalse(b.hasRemaining());
+                }
+                d.end();
+                assertEquals(10, read.size());
+                for (int i = 0; i < read.size(); ++i) assertEquals(json(foo(i)), json(read.get(i)));
+            }
+        }
+        RecordDecoder<Example.Foo> d = new RecordDecoder<>(Codec.BUFFERS, Example.Foo::from);
+        ByteBuffer b = ByteBuffer.wrap(write(Codec.BUFFERS, 1), 0, 6);
+        assertEquals(null, d.next(b));
+        assertEquals(6, d.pending());
+        try {
+            d.end();
+            fail();
+        } catch (IOException e) {
+        }
+    }
+
+    @Test
+    public void batches() throws Exception
+    {
+        List<Example.Foo> foos = new ArrayList<>();
+        for (int i = 0; i < 2000; ++i) foos.add(foo(i));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (Codec codec : Arrays.asList(Codec.MESSAGE_PACK, Codec.BUFFERS, Codec.JSON)) {
+                byte[] bytes = write(codec, foos.size());
+                assertTrue(Arrays.equals(bytes, Batches.encode(foos, codec, executor)));
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                Batches.encode(foos, codec, executor, out);
+                assertTrue(Arrays.equals(bytes, out.toByteArray()));
+                List<Example.Foo> read = Batches.decode(bytes, 0, bytes.length, codec, Example.Foo::from, executor);
+                assertEquals(foos.size(), read.size());
+                for (int i = 0; i < read.size(); ++i) assertEquals(json(foos.get(i)), json(read.get(i)));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void files() throws Exception
+    {
+        int n = 20000;
+        Path lines = Files.createTempFile("jason", ".jsonl");
+        Path framed = Files.createTempFile("jason", ".bin");
+        try {
+            StringBuilder b = new StringBuilder();
+            for (int i = 0; i < n; ++i) b.append(json(foo(i))).append(i % 100 == 0 ? "\r\n\n" : "\n");
+            Files.write(lines, b.toString().getBytes(StandardCharsets.UTF_8));
+            Files.write(framed, write(Codec.BUFFERS, n));
+            try (Stream<Example.Foo> s = RecordFiles.jsonLines(lines, Example.Foo::from)) {
+                List<Example.Foo> read = s.parallel().collect(Collectors.toList());
+                assertEquals(n, read.size());
+                for (int i = 0; i < n; ++i) assertEquals(json(foo(i)), json(read.get(i)));
+            }
+            try (Stream<Example.Foo> s = RecordFiles.framed(framed, Codec.BUFFERS, Example.Foo::from)) {
+                List<Example.Foo> read = s.parallel().collect(Collectors.toList());
+                assertEquals(n, read.size());
+                for (int i = 0; i < n; ++i) assertEquals(json(foo(i)), json(read.get(i)));
+            }
+        } finally {
+            Files.delete(lines);
+            Files.delete(framed);
+        }
+    }
+
+    @Test
+    public void blocks() throws Exception
+    {
+        int n = 5000;
+        Path file = Files.createTempFile("jason", ".blk");
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            try (BlockWriter<Example.Foo> w = new BlockWriter<>(new FileOutputStream(file.toFile()), Codec.MESSAGE_PACK, 4096, 6, executor)) {
+                for (int i = 0; i < n; ++i) assertEquals(i, w.write(foo(i)));
+            }
+            assertTrue(Files.size(file) < write(Codec.MESSAGE_PACK, n).length / 2);
+            try (BlockReader r = BlockReader.open(file, Codec.MESSAGE_PACK)) {
+                assertEquals(n, r.size());
+                assertTrue(r.blocks() > 10);
+                for (int i : new int[] { 4321, 0, n - 1, 17, 18 }) assertEquals(json(foo(i)), json(r.get(i, Example.Foo::from)));
+                List<Example.Foo> all = r.scan(Example.Foo::from).parallel().collect(Collectors.toList());
+                assertEquals(n, all.size());
+                for (int i = 0; i < n; ++i) assertEquals(json(foo(i)), json(all.get(i)));
+            }
+        } finally {
+            executor.shutdown();
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Writes a container holding {@code data} and an index of the given entries, each an offset,
+     * compressed length, uncompressed length and first id.
+     */
+    private static void container(Path file, byte[] data, long count, long[]... entries) throws IOException
+    {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file.toFile()))) {
+            out.write(data);
+            for (long[] e : entries) {
+                out.writeLong(e[0]);
+                out.writeInt((int)e[1]);
+                out.writeInt((int)e[2]);
+                out.writeLong(e[3]);
+            }
+            out.writeInt(entries.length);
+            out.writeLong(count);
+            out.writeLong(data.length);
+            out.writeInt(0x4a534e42);
+        }
+    }
+
+    @Test
+    public void corruptBlock() throws Exception
+    {
+        byte[] block = { 0, 0, 0, 50, 1, 2 };
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(block);
+        deflater.finish();
+        byte[] compressed = new byte[64];
+        int length = deflater.deflate(compressed);
+        deflater.end();
+        Path file = Files.createTempFile("jason", ".blk");
+        try {
+            container(file, Arrays.copyOf(compressed, length), 1, new long[] { 0, length, block.length, 0 });
+            try (BlockReader r = BlockReader.open(file, Codec.MESSAGE_PACK)) {
+                r.get(0, Example.Foo::from);
+                fail();
+            } catch (IOException e) {
+                assertEquals("corrupt block 0", e.getMessage());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void corruptFooter() throws Exception
+    {
+        byte[] data = new byte[16];
+        long[][][] bad = {
+            { { -1, 16, 16, 0 } },
+            { { 0, -1, 16, 0 } },
+            { { 0, 16, -1, 0 } },
+            { { 8, 9, 16, 0 } },
+            { { 0, 16, 16, 1 } },
+            { { 0, 8, 16, 0 }, { 8, 8, 16, 0 } },
+            { { 0, 8, 16, 0 }, { 8, 8, 16, 2 } },
+        };
+        Path file = Files.createTempFile("jason", ".blk");
+        try {
+            for (long[][] entries : bad) {
+                container(file, data, 2, entries);
+                try (BlockReader r = BlockReader.open(file, Codec.MESSAGE_PACK)) {
+                    fail();
+                } catch (IOException e) {
+                    assertEquals("corrupt index entry " + (entries.length - 1) + ": " + file, e.getMessage());
+                }
+            }
+            container(file, data, 2, new long[] { 0, 8, 16, 0 }, new long[] { 8, 8, 16, 1 });
+            try (BlockReader r = BlockReader.open(file, Codec.MESSAGE_PACK)) {
+                assertEquals(2, r.size());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void delete(Path dir) throws Exception
+    {
+        for (File f : dir.toFile().listFiles()) f.delete();
+        Files.delete(dir);
+    }
+
+    @Test
+    public void log() throws Exception
+    {
+        Path dir = Files.createTempDirectory("jason-log");
+        try {
+            try (RecordLog log = RecordLog.open(dir, Codec.MESSAGE_PACK, 256)) {
+                for (int i = 0; i < 50; ++i) assertEquals(i, log.append(foo(i)));
+                assertEquals(json(foo(37)), json(log.get(37, Example.Foo::from)));
+                assertEquals(json(foo(0)), json(log.get(0, Example.Foo::from)));
+                assertEquals(50, log.scan(Example.Foo::from).count());
+            }
+            assertTrue(dir.toFile().list().length > 2);
+            try (RecordLog log = RecordLog.open(dir, Codec.MESSAGE_PACK, 256)) {
+                assertEquals(50, log.size());
+                assertEquals(50, log.append(foo(50)));
+                List<Example.Foo> all = log.scan(40, Example.Foo::from).collect(Collectors.toList());
+                assertEquals(11, all.size());
+                for (int i = 0; i < all.size(); ++i) assertEquals(json(foo(40 + i)), json(all.get(i)));
+            }
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void logMapping() throws Exception
+    {
+        Path dir = Files.createTempDirectory("jason-log");
+        try {
+            Path segment = dir.resolve(String.format("%020d.log", 0));
+            Path index = dir.resolve(String.format("%020d.idx", 0));
+            try (RecordLog log = RecordLog.open(dir, Codec.BUFFERS, 4096)) {
+                for (int i = 0; i < 20; ++i) {
+                    assertEquals(i, log.append(foo(i)));
+                    assertEquals(json(foo(i)), json(log.get(i, Example.Foo::from)));
+                }
+                assertEquals(4096, Files.size(segment));
+                assertEquals(4096, Files.size(index));
+            }
+            long intact = Files.size(segment);
+            assertEquals(20 * 8, Files.size(index));
+            Files.write(segment, new byte[(int)(4096 - intact)], StandardOpenOption.APPEND);
+            Files.write(index, new byte[4096 - 20 * 8], StandardOpenOption.APPEND);
+            try (RecordLog log = RecordLog.open(dir, Codec.BUFFERS, 4096)) {
+                assertEquals(20, log.size());
+                assertEquals(intact, Files.size(segment));
+                assertEquals(json(foo(19)), json(log.get(19, Example.Foo::from)));
+            }
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void logRecovery() throws Exception
+    {
+        Path dir = Files.createTempDirectory("jason-log");
+        try {
+            try (RecordLog log = RecordLog.open(dir, Codec.BUFFERS)) {
+                for (int i = 0; i < 5; ++i) log.append(foo(i));
+            }
+            Path segment = dir.resolve(String.format("%020d.log", 0));
+            Path index = dir.resolve(String.format("%020d.idx", 0));
+            long intact = Files.size(segment);
+            Files.write(segment, new byte[] { 0, 0, 0, 100, 1, 2, 3 }, StandardOpenOption.APPEND);
+            Files.write(index, new byte[] { 0, 0, 0 }, StandardOpenOption.APPEND);
+            try (RecordLog log = RecordLog.open(dir, Codec.BUFFERS)) {
+                assertEquals(5, log.size());
+                assertEquals(intact, Files.size(segment));
+                assertEquals(json(foo(4)), json(log.get(4, Example.Foo::from)));
+                assertEquals(5, log.append(foo(5)));
+            }
+            byte[] idx = Files.readAllBytes(index);
+            Files.write(index, Arrays.copyOf(idx, idx.length - 16));
+            try (RecordLog log = RecordLog.open(dir, Codec.BUFFERS)) {
+                assertEquals(6, log.size());
+                assertEquals(json(foo(5)), json(log.get(5, Example.Foo::from)));
+            }
+            intact = Files.size(segment);
+            Files.write(segment, new byte[64], StandardOpenOption.APPEND);
+            try (RecordLog log = RecordLog.open(dir, Codec.BUFFERS)) {
+                assertEquals(6, log.size());
+                assertEquals(intact, Files.size(segment));
+            }
+        } finally {
+            delete(dir);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.github.mortimersmith.jason;
+
+import com.github.mortimersmith.jason.binary.Buffers;
+import com.github.mortimersmith.jason.binary.Tagged;
+import com.github.mortimersmith.jason.json.Json;
+import com.github.mortimersmith.jason.json.JsonBytes;
+import com.github.mortimersmith.jason.json.JsonStream;
+import com.github.mortimersmith.jason.msgpack.MessagePack;
+import com.google.gson.JsonParser;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class SerializerTest
+{
+    private static Example.Foo foo()
+    {
+        Map<String, Example.Bar> map = new HashMap<>();
+        map.put("a", Example.Bar.of());
+        map.put("b", Example.Bar.of());
+        return Example.Foo.of(true, Optional.of(42L), Arrays.asList(1, 2, 3), map);
+    }
+
+    private static String json(Example.Foo foo) throws Exception
+    {
+        return Json.wrap(foo).toString();
+    }
+
+    @Test
+    public void equality() throws Exception
+    {
+        Example.Foo foo = foo();
+        Map<Example.Foo, String> keys = new HashMap<>();
+        keys.put(foo, "foo");
+        assertEquals("foo", keys.get(foo()));
+        assertEquals(foo.hashCode(), foo().hashCode());
+        assertEquals(false, foo.equals(foo.list(Arrays.asList(1, 2))));
+        assertEquals(foo, Json.unwrap(Json.wrap(foo), Example.Foo::from));
+    }
+
+    @Test
+    public void json() throws Exception
+    {
+        Example.Foo foo = foo();
+        assertEquals(json(foo), json(Json.unwrap(Json.wrap(foo), Example.Foo::from)));
+    }
+
+    @Test
+    public void messagePack() throws Exception
+    {
+        Example.Foo foo = foo();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MessagePack.wrap(foo, out);
+        assertEquals(json(foo), json(MessagePack.unwrap(new ByteArrayInputStream(out.toByteArray()), Example.Foo::from)));
+    }
+
+    @Test
+    public void messagePackBogusLength() throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MessagePack.wrap(foo(), out);
+        byte[] bytes = out.toByteArray();
+        int list = 0;
+        while (!(bytes[list] == 3 && bytes[list + 1] == 1 && bytes[list + 2] == 2 && bytes[list + 3] == 3)) ++list;
+        for (byte[] length : new byte[][] { { -1 }, { (byte)0xce, 0x7f, -1, -1, -1 } }) {
+            ByteArrayOutputStream bogus = new ByteArrayOutputStream();
+            bogus.write(bytes, 0, list);
+            bogus.write(length);
+            bogus.write(bytes, list + 1, 3);
+            try {
+                MessagePack.unwrap(new ByteArrayInputStream(bogus.toByteArray()), Example.Foo::from);
+                fail();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    @Test
+    public void messagePackSession() throws Exception
+    {
+        Example.Foo foo = foo();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MessagePack.wrap(foo, out);
+        MessagePack.Session session = MessagePack.session();
+        for (int i = 0; i < 3; ++i) {
+            byte[] bytes = session.wrap(foo);
+            assertEquals(Arrays.toString(out.toByteArray()), Arrays.toString(bytes));
+            assertEquals(json(foo), json(session.unwrap(bytes, Example.Foo::from)));
+        }
+    }
+
+    @Test
+    public void messagePackPool() throws Exception
+    {
+        Example.Foo foo = foo();
+        MessagePack.Pool pool = new MessagePack.Pool(1);
+        byte[] bytes;
+        try (MessagePack.Session session = pool.acquire()) {
+            bytes = session.append(foo).append(foo).toByteArray();
+        }
+        try (MessagePack.Session session = pool.acquire()) {
+            assertEquals(0, session.size());
+            ByteBuffer in = ByteBuffer.wrap(bytes);
+            assertEquals(json(foo), json(session.unwrap(in, Example.Foo::from)));
+        }
+    }
+
+    @Test
+    public void jsonStream() throws Exception
+    {
+        Example.Foo foo = foo();
+        StringWriter out = new StringWriter();
+        JsonStream.wrap(foo, out);
+        assertEquals(json(foo), out.toString());
+        assertEquals(json(foo), json(JsonStream.unwrap(new StringReader(out.toString()), Example.Foo::from)));
+    }
+
+    @Test
+    public void jsonStreamAnyOrder() throws Exception
+    {
+        String in = "{\"extra\":{\"x\":[1,{\"y\":2}]},\"map\":{\"a\":{\"z\":1}},\"list\":[3],\"primitive\":false,\"tail\":[]}";
+        assertEquals
+            ( "{\"primitive\":false,\"list\":[3],\"map\":{\"a\":{}}}"
+            , json(JsonStream.unwrap(new StringReader(in), Example.Foo::from))
+            );
+    }
+
+    @Test
+    public void jsonKeyedMissingField() throws Exception
+    {
+        String in = "{\"unknown\":[{\"list\":[]}],\"primitive\":true,\"map\":{}}";
+        try {
+            JsonStream.unwrap(new StringReader(in), Example.Foo::from);
+            fail();
+        } catch (IOException e) {
+            assertEquals("missing field: list", e.getMessage());
+        }
+        try {
+            JsonBytes.unwrap(in.getBytes(StandardCharsets.UTF_8), Example.Foo::from);
+            fail();
+        } catch (IOException e) {
+            assertEquals("missing field: list", e.getMessage());
+        }
+    }
+
+    @Test
+    public void jsonBytes() throws Exception
+    {
+        Example.Foo foo = foo();
+        byte[] bytes = JsonBytes.wrap(foo);
+        assertEquals(json(foo), new String(bytes, StandardCharsets.UTF_8));
+        assertEquals(json(foo), json(JsonBytes.unwrap(bytes, Example.Foo::from)));
+        Map<String, Example.Bar> map = new HashMap<>();
+        map.put("\"\u00e9\n\u2028\ud83d\ude00", Example.Bar.of());
+        Example.Foo odd = Example.Foo.of(false, Optional.of(Long.MIN_VALUE), Arrays.asList(0, -7, Integer.MAX_VALUE), map);
+        StringWriter out = new StringWriter();
+        JsonStream.wrap(odd, out);
+        JsonBytes.Output reused = new JsonBytes.Output(16);
+        for (int i = 0; i < 2; ++i)
+            assertEquals(out.toString(), new String(JsonBytes.wrap(odd, reused.clear()).toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void buffers() throws Exception
+    {
+        Example.Foo foo = foo();
+        assertEquals(json(foo), json(Buffers.unwrap(Buffers.wrap(foo), Example.Foo::from)));
+    }
+
+    @Test
+    public void buffersDirectGrowth() throws Exception
+    {
+        Example.Foo foo = foo();
+        ByteBuffer out = Buffers.wrap(foo, ByteBuffer.allocateDirect(2));
+        assertEquals(true, out.isDirect());
+        out.flip();
+        assertEquals(json(foo), json(Buffers.unwrap(out, Example.Foo::from)));
+        assertEquals(0, out.remaining());
+    }
+
+    @Test
+    public void tagged() throws Exception
+    {
+        Example.Foo foo = foo();
+        ByteBuffer bytes = Tagged.wrap(foo);
+        assertEquals(foo, Tagged.unwrap(bytes.duplicate(), Example.Foo::from));
+        assertEquals(Example.Bar.of(), Tagged.unwrap(bytes.duplicate(), Example.Bar::from));
+        Example.Foo empty = Tagged.unwrap(Tagged.wrap(Example.Bar.of()), Example.Foo::from);
+        assertEquals(Optional.empty(), empty.optional());
+        assertEquals(0, empty.list().size());
+    }
+
+    @Test
+    public void collectionFactory() throws Exception
+    {
+        JasonLib.CollectionFactory unmodifiable = new JasonLib.CollectionFactory() {
+            @Override
+            public <T> ListBuilder<T> list(int expected) {
+                ListBuilder<T> l = DEFAULT.list(expected);
+                return new ListBuilder<T>() {
+                    @Override
+                    public void add(T t) {
+                        l.add(t);
+                    }
+
+                    @Override
+                    public List<T> build() {
+                        return Collections.unmodifiableList(l.build());
+                    }
+                };
+            }
+
+            @Override
+            public <K, V> MapBuilder<K, V> map(int expected) {
+                MapBuilder<K, V> m = DEFAULT.map(expected);
+                return new MapBuilder<K, V>() {
+                    @Override
+                    public void put(K key, V value) {
+                        m.put(key, value);
+                    }
+
+                    @Override
+                    public Map<K, V> build() {
+                        return Collections.unmodifiableMap(m.build());
+                    }
+                };
+            }
+        };
+        Example.Foo foo = foo();
+        Example.Foo read = Example.Foo.from(new Buffers(unmodifiable), Buffers.wrap(foo));
+        assertEquals(foo, read);
+        assertEquals(Collections.unmodifiableList(new ArrayList<>()).getClass(), read.list().getClass());
+        assertEquals(Collections.unmodifiableMap(new HashMap<>()).getClass(), read.map().getClass());
+    }
+
+    @Test
+    public void buffersStringReferences() throws Exception
+    {
+        Buffers.Output out = Buffers.Output.heap(4).referenceStrings();
+        JasonLib.Serializer.Writer<Buffers.Output, String> w = Buffers.INSTANCE.stringWriter();
+        w.write(w.write(w.write(out, "tenant"), "other"), "tenant");
+        ByteBuffer bytes = out.flip();
+        assertEquals(4 + 6 + 4 + 5 + 4, bytes.remaining());
+
+        Buffers cached = new Buffers(JasonLib.CollectionFactory.DEFAULT, new JasonLib.StringCache(16));
+        JasonLib.Serializer.Reader<ByteBuffer, String> r = cached.stringReader();
+        String first = r.read(bytes);
+        assertEquals("other", r.read(bytes));
+        assertSame(first, r.read(bytes));
+        assertEquals(0, bytes.remaining());
+    }
+
+    @Test
+    public void buffersMapped() throws Exception
+    {
+        Example.Foo foo = foo();
+        Path file = Files.createTempFile("jason", ".bin");
+        try {
+            ByteBuffer bytes = Buffers.wrap(foo);
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                ch.write(bytes);
+            }
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer mapped = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                assertEquals(json(foo), json(Buffers.unwrap(mapped, Example.Foo::from)));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void jsonTreeAnyOrder() throws Exception
+    {
+        String in = "{\"map\":{\"a\":{}},\"extra\":1,\"list\":[3],\"primitive\":false}";
+        assertEquals
+            ( "{\"primitive\":false,\"list\":[3],\"map\":{\"a\":{}}}"
+            , json(Json.unwrap(new JsonParser().parse(in).getAsJsonObject(), Example.Foo::from))
+            );
+    }
+
+    private static void invalid(JasonLib.Schema.Builder schema, String message)
+    {
+        try {
+            schema.build();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    @Test
+    public void schema() throws Exception
+    {
+        JasonLib.Schema.Kind k = JasonLib.Schema.Kind.INT;
+        JasonLib.Schema dense = JasonLib.Schema.builder().field("a", 1, k).field("b\"", 2, k).field("c", 9, k).build();
+        assertEquals(1, dense.indexOf("b\""));
+        assertEquals(-1, dense.indexOf("d"));
+        assertEquals(2, dense.indexOf("c", 2));
+        assertEquals(2, dense.indexOf(new String("c"), 2));
+        assertEquals(2, dense.indexOf("c", 0));
+        assertEquals(2, dense.indexOf("c", 7));
+        assertEquals(-1, dense.indexOf("d", 3));
+        assertEquals(2, dense.indexOfId(9));
+        assertEquals(-1, dense.indexOfId(3));
+        assertEquals(-1, dense.indexOfId(10));
+        assertEquals("\"b\\\"\":", new String(dense.json(1), StandardCharsets.UTF_8));
+
+        JasonLib.Schema sparse = JasonLib.Schema.builder().field("a", 5, k).field("b", 1000000, k).field("c", 70, k).build();
+        assertEquals(0, sparse.indexOfId(5));
+        assertEquals(1, sparse.indexOfId(1000000));
+        assertEquals(2, sparse.indexOfId(70));
+        assertEquals(-1, sparse.indexOfId(6));
+        assertEquals(-1, sparse.indexOfId(2000000));
+        assertEquals(-1, sparse.indexOfId(0));
+
+        invalid(JasonLib.Schema.builder().field("a", 1, k).field("a", 2, k), "duplicate field name: a");
+        invalid(JasonLib.Schema.builder().field("a", 1, k).field("b", 1, k), "duplicate field id: 1");
+        invalid(JasonLib.Schema.builder().field("a", 1000000, k).field("b", 1000000, k), "duplicate field id: 1000000");
+        invalid(JasonLib.Schema.builder().field("a", 0, k), "invalid field id: 0");
+    }
+}